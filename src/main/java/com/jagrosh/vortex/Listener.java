@@ -19,12 +19,17 @@ import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import net.dv8tion.jda.core.JDA.ShardInfo;
+import net.dv8tion.jda.core.entities.Member;
 import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.entities.Role;
 import net.dv8tion.jda.core.events.Event;
 import net.dv8tion.jda.core.events.ReadyEvent;
+import net.dv8tion.jda.core.events.channel.text.TextChannelDeleteEvent;
+import net.dv8tion.jda.core.events.channel.text.update.TextChannelUpdatePermissionsEvent;
+import net.dv8tion.jda.core.events.channel.text.update.TextChannelUpdateTopicEvent;
 import net.dv8tion.jda.core.events.guild.GuildBanEvent;
 import net.dv8tion.jda.core.events.guild.GuildUnbanEvent;
+import net.dv8tion.jda.core.events.guild.update.GuildUpdateOwnerEvent;
 import net.dv8tion.jda.core.events.guild.member.*;
 import net.dv8tion.jda.core.events.guild.voice.GuildVoiceJoinEvent;
 import net.dv8tion.jda.core.events.guild.voice.GuildVoiceLeaveEvent;
@@ -33,6 +38,10 @@ import net.dv8tion.jda.core.events.message.MessageBulkDeleteEvent;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageDeleteEvent;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageUpdateEvent;
+import net.dv8tion.jda.core.events.role.GenericRoleEvent;
+import net.dv8tion.jda.core.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.core.events.role.update.RoleUpdatePermissionsEvent;
+import net.dv8tion.jda.core.events.role.update.RoleUpdatePositionEvent;
 import net.dv8tion.jda.core.events.user.update.UserUpdateAvatarEvent;
 import net.dv8tion.jda.core.events.user.update.UserUpdateDiscriminatorEvent;
 import net.dv8tion.jda.core.events.user.update.UserUpdateNameEvent;
@@ -67,7 +76,7 @@ public class Listener implements EventListener
                 vortex.getMessageCache().putMessage(m);
                 
                 // Run automod on the message
-                vortex.getAutoMod().performAutomod(m);
+                vortex.getAutoMod().queueAutomod(m);
             }
         }
         else if (event instanceof GuildMessageUpdateEvent)
@@ -77,7 +86,7 @@ public class Listener implements EventListener
             if(!m.getAuthor().isBot()) // ignore bot edits
             {
                 // Run automod on the message
-                vortex.getAutoMod().performAutomod(m);
+                vortex.getAutoMod().queueAutomod(m);
                 
                 // Store and log the edit
                 Message old = vortex.getMessageCache().putMessage(m);
@@ -121,6 +130,7 @@ public class Listener implements EventListener
             
             // Log the member leaving
             vortex.getBasicLogger().logGuildLeave(gmle);
+            vortex.getAutoMod().getExemptions().invalidate(gmle.getMember());
             
             // Signal the modlogger because someone might have been kicked
             vortex.getModLogger().setNeedUpdate(gmle.getGuild());
@@ -141,6 +151,9 @@ public class Listener implements EventListener
         {
             GuildMemberRoleAddEvent gmrae = (GuildMemberRoleAddEvent) event;
             
+            // Roles affect who automod applies to (and the bot's own roles affect everyone)
+            memberRolesChanged(gmrae.getMember());
+            
             // Signal the modlogger if someone was muted
             Role mRole = vortex.getDatabase().settings.getSettings(gmrae.getGuild()).getMutedRole(gmrae.getGuild());
             if(gmrae.getRoles().contains(mRole))
@@ -150,6 +163,9 @@ public class Listener implements EventListener
         {
             GuildMemberRoleRemoveEvent gmrre = (GuildMemberRoleRemoveEvent) event;
             
+            // Roles affect who automod applies to (and the bot's own roles affect everyone)
+            memberRolesChanged(gmrre.getMember());
+            
             // Signal the modlogger if someone was unmuted
             Role mRole = vortex.getDatabase().settings.getSettings(gmrre.getGuild()).getMutedRole(gmrre.getGuild());
             if(gmrre.getRoles().contains(mRole))
@@ -205,6 +221,26 @@ public class Listener implements EventListener
             if(!gevent.getMember().getUser().isBot()) // ignore bots
                 vortex.getBasicLogger().logVoiceLeave(gevent);
         }
+        else if (event instanceof TextChannelUpdateTopicEvent)
+        {
+            vortex.getAutoMod().getChannelFlags().invalidate(((TextChannelUpdateTopicEvent) event).getChannel().getIdLong());
+        }
+        else if (event instanceof TextChannelUpdatePermissionsEvent)
+        {
+            vortex.getAutoMod().getExemptions().invalidate(((TextChannelUpdatePermissionsEvent) event).getGuild());
+        }
+        else if (event instanceof RoleUpdatePermissionsEvent || event instanceof RoleUpdatePositionEvent || event instanceof RoleDeleteEvent)
+        {
+            vortex.getAutoMod().getExemptions().invalidate(((GenericRoleEvent) event).getGuild());
+        }
+        else if (event instanceof GuildUpdateOwnerEvent)
+        {
+            vortex.getAutoMod().getExemptions().invalidate(((GuildUpdateOwnerEvent) event).getGuild());
+        }
+        else if (event instanceof TextChannelDeleteEvent)
+        {
+            vortex.getAutoMod().getChannelFlags().invalidate(((TextChannelDeleteEvent) event).getChannel().getIdLong());
+        }
         else if (event instanceof ReadyEvent)
         {
             // Log the shard that has finished loading
@@ -217,4 +253,12 @@ public class Listener implements EventListener
             vortex.getThreadpool().scheduleWithFixedDelay(() -> vortex.getDatabase().tempmutes.checkUnmutes(event.getJDA(), vortex.getDatabase().settings), 0, 45, TimeUnit.SECONDS);
         }
     }
+    
+    private void memberRolesChanged(Member member)
+    {
+        if(member.equals(member.getGuild().getSelfMember()))
+            vortex.getAutoMod().getExemptions().invalidate(member.getGuild());
+        else
+            vortex.getAutoMod().getExemptions().invalidate(member);
+    }
 }
@@ -145,15 +145,20 @@ public class Vortex
                             // Automoderation
                             new AntiinviteCmd(this),
                             new AnticopypastaCmd(this),
+                            new AnticampaignCmd(this),
+                            new AntizalgoCmd(this),
                             new AntirefCmd(this),
                             new MaxlinesCmd(this),
                             new MaxmentionsCmd(this),
                             new AntiduplicateCmd(this),
+                            new AntifloodCmd(this),
                             new AutodehoistCmd(this),
                             new ResolvelinksCmd(this),
                             new AutoraidmodeCmd(this),
                             new IgnoreCmd(this),
                             new UnignoreCmd(this),
+                            new FilterCmd(this),
+                            new UnfilterCmd(this),
                             
                             // Tools
                             new AnnounceCmd(),
@@ -166,6 +171,7 @@ public class Vortex
                             new EvalCmd(this),
                             new DebugCmd(this),
                             new ReloadCmd(this),
+                            new ShadowCmd(this),
                             new TransferCmd(this)
                         )
                         .setHelpConsumer(event -> event.replyInDm(FormatUtil.formatHelp(event, this), m -> 
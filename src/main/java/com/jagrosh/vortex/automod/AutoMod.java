@@ -15,23 +15,22 @@
  */
 package com.jagrosh.vortex.automod;
 
-import com.jagrosh.vortex.Constants;
 import com.jagrosh.vortex.Vortex;
-import com.jagrosh.vortex.database.managers.AutomodManager;
+import com.jagrosh.vortex.automod.rules.*;
 import com.jagrosh.vortex.database.managers.AutomodManager.AutomodSettings;
-import com.jagrosh.vortex.utils.FixedCache;
 import com.jagrosh.vortex.utils.FormatUtil;
+import com.jagrosh.vortex.utils.GuildLaneExecutor;
 import com.jagrosh.vortex.utils.OtherUtil;
 import java.time.OffsetDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicLong;
 import net.dv8tion.jda.core.Permission;
 import net.dv8tion.jda.core.entities.*;
 import net.dv8tion.jda.core.entities.Guild.VerificationLevel;
@@ -46,34 +45,75 @@ import org.slf4j.LoggerFactory;
  */
 public class AutoMod
 {
-    private static final Pattern INVITES = Pattern.compile("discord\\s?(?:(?:\\.|dot|\\(\\.\\)|\\(dot\\))\\s?gg|app\\s?\\.\\s?com\\s?\\/\\s?invite)\\s?\\/\\s?([A-Z0-9-]{2,18})",
-            Pattern.CASE_INSENSITIVE);
-    
-    
-    private static final Pattern REF = Pattern.compile("https?:\\/\\/\\S+(?:\\/ref\\/|[?&#]ref(?:errer|erral)?=)\\S+", Pattern.CASE_INSENSITIVE);
-    private static final Pattern BASE_URL = Pattern.compile("https?:\\/\\/(?:\\S+\\.)?(\\S+\\.\\S+?)[/?]\\S+", Pattern.CASE_INSENSITIVE);
-    
-    private static final Pattern LINK       = Pattern.compile("https?:\\/\\/\\S+", Pattern.CASE_INSENSITIVE);
-    private static final String INVITE_LINK = "https?:\\/\\/discord(?:app\\.com\\/invite|\\.gg)\\/(\\S+)";
-    
-    private static final String CONDENSER = "(.+?)\\s*(\\1\\s*)+";
     private static final Logger LOG = LoggerFactory.getLogger("AutoMod");
     public  static final String RESTORE_MUTE_ROLE_AUDIT = "Restoring Muted Role";
+    private static final int LANES = 8;
+    private static final int LANE_CAPACITY = 500;
+    private static final long DROP_WARNING = 10000;
     
     private final Vortex vortex;
     
-    private String[] refLinkList;
-    private final URLResolver urlResolver = new URLResolver();
+    private final DomainClassifier domainClassifier = new DomainClassifier();
+    private final URLResolver urlResolver = new URLResolver(domainClassifier);
     private final InviteResolver inviteResolver = new InviteResolver();
     private final CopypastaResolver copypastaResolver = new CopypastaResolver();
-    private final FixedCache<String,DupeStatus> spams = new FixedCache<>(3000);
-    private final HashMap<Long,OffsetDateTime> latestGuildJoin = new HashMap<>();
+    private final RegexBudget regexBudget = new RegexBudget();
+    private final DupeTracker dupes = new DupeTracker();
+    private final CrossChannelTracker crossChannel = new CrossChannelTracker();
+    private final FloodTracker floods = new FloodTracker();
+    private final MentionTracker userMentions = new MentionTracker();
+    private final MentionTracker roleMentions = new MentionTracker();
+    private final RaidTracker raids = new RaidTracker();
+    private final JoinWaveDetector waves = new JoinWaveDetector();
+    private final DeletionCoalescer deletions;
+    private final ChannelLockouts lockouts;
+    private final CampaignDetector campaigns;
+    private final ChannelFlags channelFlags;
+    private final MemberExemptions exemptions;
+    private final List<AutomodRule> rules;
+    private final ShadowLog shadowLog = new ShadowLog();
+    private final Set<Long> shadowGuilds = ConcurrentHashMap.newKeySet();
+    private final GuildLaneExecutor lanes = new GuildLaneExecutor("automod", LANES, LANE_CAPACITY);
+    private final AtomicLong lastDropWarning = new AtomicLong();
     
     public AutoMod(Vortex vortex)
     {
         this.vortex = vortex;
+        this.deletions = new DeletionCoalescer(vortex.getThreadpool());
+        this.lockouts = new ChannelLockouts(vortex.getThreadpool());
+        this.campaigns = new CampaignDetector(vortex.getThreadpool());
+        this.channelFlags = new ChannelFlags(vortex);
+        this.exemptions = new MemberExemptions(vortex);
         loadCopypastas();
         loadReferralDomains();
+        loadSafeDomains();
+        List<AutomodRule> list = new ArrayList<>(Arrays.asList(
+                new FloodRule(floods),
+                new DuplicateRule(vortex, dupes, deletions),
+                new CrossChannelRule(vortex, crossChannel, deletions),
+                new CampaignRule(campaigns),
+                new MentionRule(userMentions),
+                new LinesRule(),
+                new ZalgoRule(),
+                new RoleMentionRule(roleMentions),
+                new ReferralRule(domainClassifier),
+                new CopypastaRule(copypastaResolver),
+                new FilterRule(vortex, regexBudget),
+                new InviteRule(vortex, inviteResolver, deletions, lanes),
+                new ResolvedLinkRule(vortex, urlResolver, inviteResolver, domainClassifier, deletions)));
+        list.sort(Comparator.comparing(AutomodRule::getCost)); // stable, so resolved links stay last
+        this.rules = Collections.unmodifiableList(list);
+        vortex.getThreadpool().scheduleWithFixedDelay(() -> regexBudget.cleanup(), 5, 5, TimeUnit.MINUTES);
+        vortex.getThreadpool().scheduleWithFixedDelay(() -> inviteResolver.cleanup(), 30, 30, TimeUnit.MINUTES);
+        vortex.getThreadpool().scheduleWithFixedDelay(() -> dupes.purge(System.currentTimeMillis()), 10, 10, TimeUnit.MINUTES);
+        vortex.getThreadpool().scheduleWithFixedDelay(() -> crossChannel.purge(System.currentTimeMillis()), 10, 10, TimeUnit.MINUTES);
+        vortex.getThreadpool().scheduleWithFixedDelay(() -> floods.purge(System.currentTimeMillis()), 10, 10, TimeUnit.MINUTES);
+        vortex.getThreadpool().scheduleWithFixedDelay(() -> userMentions.purge(System.currentTimeMillis()), 10, 10, TimeUnit.MINUTES);
+        vortex.getThreadpool().scheduleWithFixedDelay(() -> roleMentions.purge(System.currentTimeMillis()), 10, 10, TimeUnit.MINUTES);
+        vortex.getThreadpool().scheduleWithFixedDelay(() -> raids.purge(System.currentTimeMillis()), 1, 1, TimeUnit.HOURS);
+        vortex.getThreadpool().scheduleWithFixedDelay(() -> channelFlags.purge(), 1, 1, TimeUnit.HOURS);
+        vortex.getThreadpool().scheduleWithFixedDelay(() -> exemptions.purge(), 1, 1, TimeUnit.HOURS);
+        vortex.getThreadpool().scheduleWithFixedDelay(() -> waves.purge(System.currentTimeMillis()), 10, 10, TimeUnit.MINUTES);
     }
     
     public final void loadCopypastas()
@@ -83,15 +123,38 @@ public class AutoMod
     
     public final void loadSafeDomains()
     {
-        this.urlResolver.loadSafeDomains();
+        this.domainClassifier.loadSafeDomains();
     }
     
     public final void loadReferralDomains()
     {
-        this.refLinkList = OtherUtil.readLines("referral_domains");
+        this.domainClassifier.loadReferralDomains();
+    }
+    
+    public boolean isInRaidMode(Guild guild)
+    {
+        return raids.isInRaidMode(guild.getIdLong(), () -> savedRaidMode(guild));
     }
     
     public void enableRaidMode(Guild guild, Member moderator, OffsetDateTime now, String reason)
+    {
+        if(raids.enable(guild.getIdLong(), () -> savedRaidMode(guild)))
+            raidModeEnabled(guild, moderator, now, reason);
+    }
+    
+    public void disableRaidMode(Guild guild, Member moderator, OffsetDateTime now, String reason)
+    {
+        if(raids.disable(guild.getIdLong(), () -> savedRaidMode(guild)))
+            raidModeDisabled(guild, moderator, now, reason);
+    }
+    
+    private boolean savedRaidMode(Guild guild)
+    {
+        return vortex.getDatabase().settings.getSettings(guild).isInRaidMode();
+    }
+    
+    // only called by whoever actually turned raid mode on, so this is saved and logged once
+    private void raidModeEnabled(Guild guild, Member moderator, OffsetDateTime now, String reason)
     {
         vortex.getDatabase().settings.enableRaidMode(guild);
         if(guild.getVerificationLevel().getKey()<VerificationLevel.HIGH.getKey())
@@ -102,7 +165,7 @@ public class AutoMod
         vortex.getModLogger().postRaidmodeCase(moderator, now, true, reason);
     }
     
-    public void disableRaidMode(Guild guild, Member moderator, OffsetDateTime now, String reason)
+    private void raidModeDisabled(Guild guild, Member moderator, OffsetDateTime now, String reason)
     {
         VerificationLevel last = vortex.getDatabase().settings.disableRaidMode(guild);
         if(guild.getVerificationLevel()!=last)
@@ -119,38 +182,39 @@ public class AutoMod
         if(event.getMember().getUser().isBot())
             return;
         
-        boolean inRaidMode = vortex.getDatabase().settings.getSettings(event.getGuild()).isInRaidMode();
-        AutomodSettings ams = vortex.getDatabase().automod.getSettings(event.getGuild());
+        Guild guild = event.getGuild();
+        AutomodSettings ams = vortex.getDatabase().automod.getSettings(guild);
         OffsetDateTime now = event.getMember().getJoinDate();
-        boolean kicking = false;
         
-        // if we're in raid mode...
-        if(inRaidMode)
+        // record the join; this also decides whether raid mode needs to turn on or off
+        // raid mode turns off if auto raid mode is used and the latest attempted join was more than 2 minutes ago
+        RaidTracker.Action action = raids.join(guild.getIdLong(), () -> savedRaidMode(guild), 
+                now.toInstant().toEpochMilli(), ams.useAutoRaidMode() ? TimeUnit.SECONDS.toMillis(ams.raidmodeTime) : 0, ams.raidmodeNumber);
+        boolean kicking = false;
+        switch(action)
         {
-            // ...and this server uses auto raid mode, check if we should be turning it off automatically
-            // this means that we should turn it off if the latest attempted join was more than 2 minutes ago
-            if(ams.useAutoRaidMode() 
-                    && latestGuildJoin.containsKey(event.getGuild().getIdLong()) 
-                    && latestGuildJoin.get(event.getGuild().getIdLong()).until(now, ChronoUnit.SECONDS)>120)
-            {
-                disableRaidMode(event.getGuild(), event.getGuild().getSelfMember(), now, "No recent join attempts");
-            }
-            // otherwise, boot 'em
-            else if(event.getGuild().getSelfMember().hasPermission(Permission.KICK_MEMBERS))
-            {
+            case DISABLE:
+                raidModeDisabled(guild, guild.getSelfMember(), now, "No recent join attempts");
+                break;
+            case ENABLE:
+                raidModeEnabled(guild, guild.getSelfMember(), now, "Maximum join rate exceeded ("+ams.raidmodeNumber+"/"+ams.raidmodeTime+"s)");
                 kicking = true;
-            }
+                break;
+            case KICK:
+                // boot 'em
+                kicking = guild.getSelfMember().hasPermission(Permission.KICK_MEMBERS);
+                break;
+            default:
+                break;
         }
         
-        // now, if we're not in raid mode, and auto mode is enabled
-        else if(ams.useAutoRaidMode())
+        // accounts that look alike can also trip auto raid mode, even if they join slowly
+        if(ams.useAutoRaidMode())
         {
-            // find the time that we should be looking after, and count the number of people that joined after that
-            OffsetDateTime min = event.getMember().getJoinDate().minusSeconds(ams.raidmodeTime);
-            long recent = event.getGuild().getMemberCache().stream().filter(m -> !m.getUser().isBot() && m.getJoinDate().isAfter(min)).count();
-            if(recent>=ams.raidmodeNumber)
+            int wave = waves.join(guild.getIdLong(), event.getUser(), now.toInstant().toEpochMilli(), ams.raidmodeNumber);
+            if(action==RaidTracker.Action.NONE && wave>0 && raids.enable(guild.getIdLong(), () -> savedRaidMode(guild)))
             {
-                enableRaidMode(event.getGuild(), event.getGuild().getSelfMember(), now, "Maximum join rate exceeded ("+ams.raidmodeNumber+"/"+ams.raidmodeTime+"s)");
+                raidModeEnabled(guild, guild.getSelfMember(), now, "Join wave detected ("+wave+" similar accounts)");
                 kicking = true;
             }
         }
@@ -177,45 +241,22 @@ public class AutoMod
             }
             dehoist(event.getMember());
         }
-        
-        latestGuildJoin.put(event.getGuild().getIdLong(), now);
     }
     
     
-    private boolean shouldPerformAutomod(Member member, TextChannel channel)
+    private boolean shouldPerformAutomod(Member member, TextChannel channel, int flags)
     {
         // ignore users not in the guild
         if(member==null || member.getGuild()==null)
             return false;
         
-        // ignore bots
-        if(member.getUser().isBot())
-            return false;
-        
-        // ignore users vortex cant interact with
-        if(!member.getGuild().getSelfMember().canInteract(member))
+        // ignore channels that are ignored
+        if(channel!=null && (flags & ChannelFlags.IGNORED)!=0)
             return false;
         
-        // ignore users that can kick
-        if(member.hasPermission(Permission.KICK_MEMBERS))
-            return false;
-        
-        // ignore users that can ban
-        if(member.hasPermission(Permission.BAN_MEMBERS))
-            return false;
-        
-        // ignore users that can manage server
-        if(member.hasPermission(Permission.MANAGE_SERVER))
-            return false;
-        
-        // if a channel is specified, ignore users that can manage messages in that channel
-        if(channel!=null && (member.hasPermission(channel, Permission.MESSAGE_MANAGE) || vortex.getDatabase().ignores.isIgnored(channel)))
-            return false;
-        
-        if(vortex.getDatabase().ignores.isIgnored(member))
-            return false;
-        
-        return true;
+        // ignore bots, users vortex cant interact with, users that can kick, ban, or manage the server,
+        // users that can manage messages in the channel (if one is specified), and users with ignored roles
+        return exemptions.get(member, channel)==0;
     }
     
     public void dehoist(Member member)
@@ -223,7 +264,7 @@ public class AutoMod
         if(!member.getGuild().getSelfMember().hasPermission(Permission.NICKNAME_MANAGE))
             return;
         
-        if(!shouldPerformAutomod(member, null))
+        if(!shouldPerformAutomod(member, null, 0))
             return;
         
         AutomodSettings settings = vortex.getDatabase().automod.getSettings(member.getGuild());
@@ -237,10 +278,23 @@ public class AutoMod
         catch(Exception ex) {}
     }
     
+    // runs automod off the event thread, in order with the guild's other messages
+    // if the guild's lane is full the message is dropped, since checking it here would stall the shard and run it out of order
+    public void queueAutomod(Message message)
+    {
+        if(lanes.execute(message.getGuild().getIdLong(), () -> performAutomod(message)))
+            return;
+        long now = System.currentTimeMillis();
+        long last = lastDropWarning.get();
+        if(now-last>=DROP_WARNING && lastDropWarning.compareAndSet(last, now))
+            LOG.warn("Automod lane full, dropped message "+message.getId()+" in guild "+message.getGuild().getId()+" ("+lanes.getDropped()+" dropped so far)");
+    }
+    
     public void performAutomod(Message message) 
     {
         //ignore users with Manage Messages, Kick Members, Ban Members, Manage Server, or anyone the bot can't interact with
-        if(!shouldPerformAutomod(message.getMember(), message.getTextChannel()))
+        int flags = channelFlags.get(message.getTextChannel());
+        if(!shouldPerformAutomod(message.getMember(), message.getTextChannel(), flags))
             return;
         
         //get the settings
@@ -248,305 +302,110 @@ public class AutoMod
         if(settings==null)
             return;
         
-        // check the channel for channel-specific settings
-        boolean preventSpam = message.getTextChannel().getTopic()==null || !message.getTextChannel().getTopic().toLowerCase().contains("{spam}");
-        boolean preventInvites = message.getTextChannel().getTopic()==null || !message.getTextChannel().getTopic().toLowerCase().contains("{invites}");
-        
-        boolean shouldDelete = false;
-        String shouldChannelMute = null;
-        int strikeTotal = 0;
-        StringBuilder reason = new StringBuilder();
-        
-        // anti-duplicate
-        if(settings.useAntiDuplicate() && preventSpam)
-        {
-            String key = message.getAuthor().getId()+"|"+message.getGuild().getId();
-            String content = condensedContent(message);
-            DupeStatus status = spams.get(key);
-            if(status==null)
-            {
-                spams.put(key, new DupeStatus(content, latestTime(message)));
-            }
-            else
-            {
-                OffsetDateTime now = latestTime(message);
-                int offenses = status.update(content, now);
-                
-                if(offenses==settings.dupeDeleteThresh)
-                {
-                    shouldChannelMute = "Please stop spamming.";
-                    purgeMessages(message.getGuild(), m -> m.getAuthor().getIdLong()==message.getAuthor().getIdLong() && m.getCreationTime().plusMinutes(2).isAfter(now));
-                }
-                else if(offenses>settings.dupeDeleteThresh)
-                    shouldDelete = true;
-                
-                if(offenses >= settings.dupeStrikeThresh)
-                {
-                    strikeTotal += settings.dupeStrikes;
-                    reason.append(", Duplicate messages");
-                }
-            }
-        }
-        
-        // anti-mention (users)
-        if(settings.maxMentions>=AutomodManager.MENTION_MINIMUM)
+        // run the rules, cheapest first, until the outcome can't change
+        // rules in shadow mode (or every rule, for a guild in shadow mode) always run, each on its own context, and only record what they would do
+        AutomodContext context = new AutomodContext(message, settings, flags);
+        boolean shadowGuild = shadowGuilds.contains(message.getGuild().getIdLong());
+        for(AutomodRule rule: rules)
         {
-            
-            long mentions = message.getMentionedUsers().stream().filter(u -> !u.isBot() && !u.equals(message.getAuthor())).distinct().count();
-            if(mentions > settings.maxMentions)
-            {
-                strikeTotal += (int)(mentions-settings.maxMentions);
-                reason.append(", Mentioning ").append(mentions).append(" users");
-                shouldDelete = true;
-            }
-        }
-        
-        // max newlines
-        if(settings.maxLines>0 && preventSpam)
-        {
-            int count = message.getContentRaw().split("\n").length;
-            if(count > settings.maxLines)
-            {
-                strikeTotal += Math.ceil((double)(count-settings.maxLines)/settings.maxLines);
-                reason.append(", Message contained ").append(count).append(" newlines");
-                shouldDelete = true;
-            }
-        }
-        
-        // anti-mention (roles)
-        if(settings.maxRoleMentions >= AutomodManager.ROLE_MENTION_MINIMUM)
-        {
-            long mentions = message.getMentionedRoles().stream().distinct().count();
-            if(mentions > settings.maxRoleMentions)
+            boolean shadow = shadowGuild || rule.isShadow();
+            if(!shadow && context.isSettled() && !rule.isStateful())
+                continue;
+            AutomodContext target = shadow ? context.shadow(shadowLog) : context;
+            if(!rule.isEnabled(target) || !rule.hasFeatures(target))
+                continue;
+            int changes = target.getChanges();
+            long start = System.nanoTime();
+            try
             {
-                strikeTotal += (int)(mentions-settings.maxRoleMentions);
-                reason.append(", Mentioning ").append(mentions).append(" roles");
-                shouldDelete = true;
+                rule.apply(target);
             }
-        }
-        
-        // prevent referral links
-        if(settings.refStrikes > 0)
-        {
-            Matcher m = REF.matcher(message.getContentRaw());
-            if(m.find())
+            catch(Exception ex)
             {
-                strikeTotal += settings.refStrikes;
-                reason.append(", Referral link");
-                shouldDelete = true;
+                LOG.error("Automod rule '"+rule.getName()+"' failed: "+ex);
             }
+            long elapsed = System.nanoTime()-start;
+            if(shadow)
+                shadowLog.record(rule.getName(), target, elapsed);
             else
-            {
-                m = BASE_URL.matcher(message.getContentRaw().toLowerCase());
-                while(m.find())
-                {
-                    if(isReferralUrl(m.group(1)))
-                    {
-                        strikeTotal += settings.refStrikes;
-                        reason.append(", Referral link");
-                        shouldDelete = true;
-                        break;
-                    }
-                }
-            }
+                rule.record(elapsed, target.getChanges()!=changes);
         }
         
-        // prevent copypastas
-        if(settings.copypastaStrikes > 0 && preventSpam)
-        {
-            String copypastaName = copypastaResolver.getCopypasta(message.getContentRaw());
-            if(copypastaName!=null)
-            {
-                strikeTotal += settings.copypastaStrikes;
-                reason.append(", ").append(copypastaName).append(" copypasta");
-                shouldDelete = true;
-            }
-        }
-        
-        // anti-invite
-        if(settings.inviteStrikes > 0 && preventInvites)
-        {
-            List<String> invites = new ArrayList<>();
-            Matcher m = INVITES.matcher(message.getContentRaw());
-            while(m.find())
-                invites.add(m.group(1));
-            LOG.trace("Found "+invites.size()+" invites.");
-            for(String inviteCode : invites)
-            {
-                long gid = inviteResolver.resolve(message.getJDA(), inviteCode);
-                if(gid != message.getGuild().getIdLong())
-                {
-                    strikeTotal += settings.inviteStrikes;
-                    reason.append(", Advertising");
-                    shouldDelete = true;
-                    break;
-                }
-            }
-        }
-        
-        
         // delete the message if applicable
-        if(shouldDelete)
-        {
-            try
-            {
-                message.delete().reason("Automod").queue(v->{}, f->{});
-            }catch(PermissionException e){}
-        }
+        if(context.shouldDelete())
+            deletions.delete(message);
         
         // channel mute if applicable (prevent sending messages in that channel for a short time as a 'warning'
+        String shouldChannelMute = context.getChannelWarning();
         if(shouldChannelMute!=null && message.getGuild().getSelfMember().hasPermission(message.getTextChannel(), Permission.MANAGE_PERMISSIONS, Permission.MESSAGE_WRITE)) 
-        {
-            message.getChannel().sendMessage(message.getAuthor().getAsMention() + Constants.WARNING + " " + shouldChannelMute).queue(m -> 
-            {
-                m.delete().queueAfter(1500, TimeUnit.MILLISECONDS, s->{}, f->{});
-                try
-                {
-                    PermissionOverride po = message.getTextChannel().getPermissionOverride(message.getMember());
-                    if(po==null)
-                    {
-
-                        message.getTextChannel().createPermissionOverride(message.getMember()).setDeny(Permission.MESSAGE_READ).queue(p -> 
-                        {
-                            try
-                            {
-                                p.delete().queueAfter(3, TimeUnit.SECONDS, s->{}, f->{});
-                            } catch(Exception ex) {}
-                        }, f->{});
-                    }
-                    else
-                    {
-                        long existingDenied = po.getDeniedRaw();
-                        po.getManager().deny(Permission.MESSAGE_READ).queue(su -> 
-                        {
-                            try
-                            {
-                                po.getManager().deny(existingDenied).queueAfter(3, TimeUnit.SECONDS, s->{}, f->{});
-                            } catch(Exception ex) {}
-                        }, f->{});
-                    }
-                } catch(Exception ex) {}
-            }, f->{});
-        }
+            lockouts.lockout(message.getMember(), message.getTextChannel(), shouldChannelMute);
         
         // assign strikes if necessary
-        if(strikeTotal>0)
+        if(context.getStrikes()>0)
         {
             vortex.getStrikeHandler().applyStrikes(message.getGuild().getSelfMember(), 
-                    latestTime(message), message.getAuthor(), strikeTotal, reason.toString().substring(2));
-        }
-        
-        // now, lets resolve links, but async
-        if(!shouldDelete && settings.resolveUrls && (settings.inviteStrikes>0 || settings.refStrikes>0))
-        {
-            List<String> links = new LinkedList<>();
-            Matcher m = LINK.matcher(message.getContentRaw());
-            while(m.find())
-                links.add(m.group());
-            if(!links.isEmpty())
-                vortex.getThreadpool().execute(() -> 
-                {
-                    boolean containsInvite = false;
-                    boolean containsRef = false;
-                    String llink = null;
-                    List<String> redirects = null;
-                    for(String link: links)
-                    {
-                        llink = link;
-                        redirects = urlResolver.findRedirects(link);
-                        for(String resolved: redirects)
-                        {
-                            if(settings.inviteStrikes>0 && resolved.matches(INVITE_LINK))
-                            {
-                                if(inviteResolver.resolve(message.getJDA(), resolved.replaceAll(INVITE_LINK, "$1")) != message.getGuild().getIdLong())
-                                    containsInvite = true;
-                            }
-                            if(settings.refStrikes>0)
-                            {
-                                if(resolved.matches(REF.pattern()) || isReferralUrl(resolved.replaceAll(BASE_URL.pattern(), "$1")))
-                                    containsRef = true;
-                            }
-                                
-                        }
-                        if((containsInvite || settings.inviteStrikes<1) && (containsRef || settings.refStrikes<1))
-                            break;
-                    }
-                    int rstrikeTotal = (containsInvite ? settings.inviteStrikes : 0) + (containsRef ? settings.refStrikes : 0);
-                    if(rstrikeTotal > 0)
-                    {
-                        vortex.getBasicLogger().logRedirectPath(message, llink, redirects);
-                        String rreason = ((containsInvite ? ", Advertising (Resolved Link)" : "") + (containsRef ? ", Referral Link (Resolved Link)" : "")).substring(2);
-                        try
-                        {
-                            message.delete().reason("Automod").queue(v->{}, f->{});
-                        }catch(PermissionException e){}
-                        vortex.getStrikeHandler().applyStrikes(message.getGuild().getSelfMember(), 
-                            latestTime(message), message.getAuthor(), rstrikeTotal, rreason);
-                    }
-                });
+                    context.getTime(), message.getAuthor(), context.getStrikes(), context.getReason());
         }
     }
     
-    private void purgeMessages(Guild guild, Predicate<Message> predicate)
+    public ShadowLog getShadowLog()
     {
-        vortex.getMessageCache().getMessages(guild, predicate).forEach(m -> 
-        {
-            try
-            {
-                m.delete().queue(s->{}, f->{});
-            }
-            catch(PermissionException ex) {}
-        });
+        return shadowLog;
     }
     
-    private boolean isReferralUrl(String url)
+    // guilds where automod only records what it would do
+    public Set<Long> getShadowGuilds()
     {
-        for(String reflink: refLinkList)
-            if(reflink.equals(url))
-                return true;
-        return false;
+        return shadowGuilds;
     }
     
-    private static String condensedContent(Message m)
+    public ChannelFlags getChannelFlags()
     {
-        StringBuilder sb = new StringBuilder(m.getContentRaw());
-        m.getAttachments().forEach(at -> sb.append("\n").append(at.getFileName()));
-        return sb.toString().trim().replaceAll(CONDENSER, "$1");
+        return channelFlags;
     }
     
-    private static OffsetDateTime latestTime(Message m)
+    public MemberExemptions getExemptions()
     {
-        return m.isEdited() ? m.getEditedTime() : m.getCreationTime();
+        return exemptions;
     }
     
-    private class DupeStatus
+    public ChannelLockouts getLockouts()
     {
-        private String content;
-        private OffsetDateTime time;
-        private int count;
-        
-        private DupeStatus(String content, OffsetDateTime time)
-        {
-            this.content = content;
-            this.time = time;
-            count = 0;
-        }
-        
-        private int update(String nextcontent, OffsetDateTime nexttime)
-        {
-            if(nextcontent.equals(content) && this.time.plusSeconds(30).isAfter(nexttime))
-            {
-                count++;
-                this.time = nexttime;
-                return count;
-            }
-            else
-            {
-                this.content = nextcontent;
-                this.time = nexttime;
-                count = 0;
-                return count;
-            }
-        }
+        return lockouts;
+    }
+    
+    public RegexBudget getRegexBudget()
+    {
+        return regexBudget;
+    }
+    
+    public DeletionCoalescer getDeletions()
+    {
+        return deletions;
+    }
+    
+    public URLResolver getURLResolver()
+    {
+        return urlResolver;
+    }
+    
+    public InviteResolver getInviteResolver()
+    {
+        return inviteResolver;
+    }
+    
+    public CampaignDetector getCampaigns()
+    {
+        return campaigns;
+    }
+    
+    public GuildLaneExecutor getLanes()
+    {
+        return lanes;
+    }
+    
+    public List<AutomodRule> getRules()
+    {
+        return rules;
     }
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.BloomFilter;
+import com.jagrosh.vortex.utils.CountMinSketch;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how many different guilds have recently posted each message (by
+ * fingerprint) or invite code, across every shard, to spot spam campaigns
+ * that are being posted everywhere at once. Guild counts are kept in a
+ * count-min sketch, and a pair of bloom filters makes sure each guild is
+ * only counted once per key. Every few minutes the counts are halved and the
+ * older bloom filter is cleared, so old campaigns fade out. None of this
+ * grows with traffic.
+ * <p>
+ * The sketch only picks candidates: once a key's estimate reaches a quarter
+ * of {@link #TRENDING} it goes in a short list of heavy hitters, which keeps
+ * the actual IDs of the guilds that post it from then on (up to a few times
+ * {@link #TRENDING}), and only that exact count is reported as trending. Keys
+ * that never made the list are reported below {@link #TRENDING}, so counts
+ * that are too high because keys share counters can't set anything off. The
+ * sketch has 4 rows of 1M counters (16MB), which keeps one-off keys well below
+ * the candidate threshold with up to about 5M new guild/key pairs per decay.
+ * <p>
+ * Each bloom filter holds 4M bits, which keeps false positives (a guild's
+ * first post of something being ignored) around 1% per filter, 2% for both,
+ * up to 400k guild/key pairs each. If more pairs than that show up before the next decay, the filters
+ * are rotated early, so under heavy traffic a guild is only remembered for
+ * somewhere between 400k and 800k pairs, and may occasionally be counted
+ * twice for the same key in the sketch (never in the exact counts).
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CampaignDetector
+{
+    public static final long DECAY = TimeUnit.MINUTES.toMillis(5);
+    public static final int TRENDING = 25; // guilds
+    public static final int MIN_LENGTH = 24;
+    private static final int HEAVY_HITTERS = 32;
+    private static final int CANDIDATE = TRENDING/4;
+    private static final int CONFIRM_GUILDS = TRENDING*4;
+    private static final int SAMPLE_LENGTH = 60;
+    private static final int BLOOM_BITS = 1<<22;
+    private static final int BLOOM_HASHES = 4;
+    private static final int BLOOM_PAIRS = 400000;
+
+    private final CountMinSketch guilds = new CountMinSketch(4, 1<<20);
+    private final Candidate[] heavyHitters = new Candidate[HEAVY_HITTERS];
+    private final AtomicLong rotations = new AtomicLong();
+    private volatile BloomFilter seen = new BloomFilter(BLOOM_BITS, BLOOM_HASHES);
+    private volatile BloomFilter previous = new BloomFilter(BLOOM_BITS, BLOOM_HASHES);
+    private int generation = 0;
+
+    public CampaignDetector(ScheduledExecutorService threadpool)
+    {
+        threadpool.scheduleWithFixedDelay(() -> decay(), DECAY, DECAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records that a guild posted something
+     *
+     * @param  guildId the guild
+     * @param  key     the fingerprint of the content, or of the invite code
+     * @param  sample  what was posted, kept if it becomes a heavy hitter
+     * @return how many guilds have recently posted it; only a heavy hitter's
+     *         exact count can reach {@link #TRENDING}
+     */
+    public int observe(long guildId, long key, String sample)
+    {
+        long pair = key ^ guildId*0x9E3779B97F4A7C15L;
+        BloomFilter current = seen;
+        int estimate;
+        if(previous.mightContain(pair) || !current.add(pair))
+            estimate = guilds.estimate(key);
+        else
+        {
+            if(current.size()>=BLOOM_PAIRS)
+                rotate(current);
+            estimate = guilds.add(key);
+        }
+        if(estimate<CANDIDATE)
+            return estimate;
+        return confirm(guildId, key, estimate, sample);
+    }
+
+    // the heavy hitters, highest count first
+    public synchronized List<Entry> getHeavyHitters()
+    {
+        List<Entry> list = new ArrayList<>();
+        for(Candidate candidate: heavyHitters)
+            if(candidate!=null)
+                list.add(new Entry(candidate.key, candidate.size, candidate.estimate, candidate.sample));
+        list.sort(Comparator.comparingInt((Entry e) -> e.count).thenComparingInt(e -> e.estimate).reversed());
+        return list;
+    }
+
+    // the fraction of bits set in the newer bloom filter; this scans the filter
+    public double getFill()
+    {
+        return seen.fill();
+    }
+
+    public int getPairs()
+    {
+        return seen.size();
+    }
+
+    public long getRotations()
+    {
+        return rotations.get();
+    }
+
+    // counts the guild exactly if the key is (or can become) a heavy hitter
+    private synchronized int confirm(long guildId, long key, int estimate, String sample)
+    {
+        int victim = -1;
+        for(int i=0; i<HEAVY_HITTERS; i++)
+        {
+            Candidate candidate = heavyHitters[i];
+            if(candidate!=null && candidate.key==key)
+            {
+                candidate.estimate = Math.max(candidate.estimate, estimate);
+                return candidate.add(guildId, generation);
+            }
+            if(candidate==null)
+            {
+                if(victim<0 || heavyHitters[victim]!=null)
+                    victim = i;
+            }
+            else if(candidate.size<TRENDING && (victim<0 || (heavyHitters[victim]!=null && candidate.estimate<heavyHitters[victim].estimate)))
+                victim = i;
+        }
+        // trending keys are never pushed out, and others only by a key with a higher estimate
+        if(victim<0 || (heavyHitters[victim]!=null && heavyHitters[victim].estimate>=estimate))
+            return Math.min(estimate, TRENDING-1);
+        Candidate candidate = new Candidate(key, estimate, sample.length()>SAMPLE_LENGTH ? sample.substring(0, SAMPLE_LENGTH) : sample);
+        heavyHitters[victim] = candidate;
+        return candidate.add(guildId, generation);
+    }
+
+    // clears the older bloom filter and makes it the newer one, unless another thread already rotated full out
+    private void rotate(BloomFilter full)
+    {
+        synchronized(rotations)
+        {
+            if(seen!=full)
+                return;
+            BloomFilter oldest = previous;
+            oldest.clear();
+            previous = seen;
+            seen = oldest;
+            rotations.incrementAndGet();
+        }
+    }
+
+    void decay()
+    {
+        guilds.decay();
+        rotate(seen);
+        synchronized(this)
+        {
+            generation++;
+            for(int i=0; i<HEAVY_HITTERS; i++)
+            {
+                Candidate candidate = heavyHitters[i];
+                if(candidate==null)
+                    continue;
+                candidate.estimate = guilds.estimate(candidate.key);
+                candidate.expire(generation);
+                if(candidate.estimate<CANDIDATE && candidate.size<TRENDING)
+                    heavyHitters[i] = null;
+            }
+        }
+    }
+
+    // a heavy hitter, with the guilds that posted it since it became one
+    private static class Candidate
+    {
+        private final long key;
+        private final String sample;
+        private final long[] guildIds = new long[CONFIRM_GUILDS];
+        private final int[] lastSeen = new int[CONFIRM_GUILDS];
+        private int size = 0;
+        private int estimate;
+
+        private Candidate(long key, int estimate, String sample)
+        {
+            this.key = key;
+            this.estimate = estimate;
+            this.sample = sample;
+        }
+
+        // returns the number of different guilds; once full, the guild seen longest ago makes room
+        private int add(long guildId, int generation)
+        {
+            int oldest = -1;
+            for(int i=0; i<size; i++)
+            {
+                if(guildIds[i]==guildId)
+                {
+                    lastSeen[i] = generation;
+                    return size;
+                }
+                if(oldest<0 || lastSeen[i]<lastSeen[oldest])
+                    oldest = i;
+            }
+            if(size<CONFIRM_GUILDS)
+                oldest = size++;
+            else if(lastSeen[oldest]==generation)
+                return size;
+            guildIds[oldest] = guildId;
+            lastSeen[oldest] = generation;
+            return size;
+        }
+
+        // forgets guilds that haven't posted it since before the last decay
+        private void expire(int generation)
+        {
+            int kept = 0;
+            for(int i=0; i<size; i++)
+            {
+                if(generation-lastSeen[i]>1)
+                    continue;
+                guildIds[kept] = guildIds[i];
+                lastSeen[kept++] = lastSeen[i];
+            }
+            size = kept;
+        }
+    }
+
+    public static class Entry
+    {
+        public final long key;
+        private final int count;
+        private final int estimate;
+        public final String sample;
+
+        private Entry(long key, int count, int estimate, String sample)
+        {
+            this.key = key;
+            this.count = count;
+            this.estimate = estimate;
+            this.sample = sample;
+        }
+
+        // the exact number of guilds that posted it since it became a heavy hitter
+        public int getCount()
+        {
+            return count;
+        }
+
+        // the sketch's count, which can be too high
+        public int getEstimate()
+        {
+            return estimate;
+        }
+    }
+}
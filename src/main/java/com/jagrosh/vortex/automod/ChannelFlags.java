@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.utils.LongRecordMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.dv8tion.jda.core.entities.TextChannel;
+
+/**
+ * Caches the automod flags of each channel (from its topic, and whether it's
+ * ignored) as one bit field, so checking a channel doesn't mean parsing its
+ * topic or asking the database every message. A channel's flags have to be
+ * invalidated whenever its topic changes, it is deleted, or it is ignored or
+ * unignored.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ChannelFlags
+{
+    public static final int SPAM_ALLOWED = 1;
+    public static final int INVITES_ALLOWED = 1<<1;
+    public static final int IGNORED = 1<<2;
+    private static final int KNOWN = 1<<30;
+    private static final long TTL = TimeUnit.HOURS.toMillis(6);
+
+    private final Vortex vortex;
+    private final LongRecordMap flags = new LongRecordMap(1, TTL);
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ChannelFlags(Vortex vortex)
+    {
+        this.vortex = vortex;
+    }
+
+    public int get(TextChannel tc)
+    {
+        long now = System.currentTimeMillis();
+        long cached = flags.get(tc.getIdLong(), 0L, 0, now, 0L);
+        if(cached!=0)
+            return (int)cached & ~KNOWN;
+        long generation = invalidations.get();
+        int computed = compute(tc);
+        flags.update(tc.getIdLong(), 0L, now, computed|KNOWN, 0L, (data, offset, last, value, unused) -> data[offset] = value);
+        // if anything was invalidated in the meantime, this may already be out of date
+        if(invalidations.get()!=generation)
+            flags.remove(tc.getIdLong(), 0L);
+        return computed;
+    }
+
+    public boolean has(TextChannel tc, int flag)
+    {
+        return (get(tc) & flag)!=0;
+    }
+
+    public void invalidate(long channelId)
+    {
+        invalidations.incrementAndGet();
+        flags.remove(channelId, 0L);
+    }
+
+    public void purge()
+    {
+        flags.purge(System.currentTimeMillis());
+    }
+
+    private int compute(TextChannel tc)
+    {
+        int result = 0;
+        String topic = tc.getTopic()==null ? null : tc.getTopic().toLowerCase();
+        if(topic!=null && topic.contains("{spam}"))
+            result |= SPAM_ALLOWED;
+        if(topic!=null && topic.contains("{invites}"))
+            result |= INVITES_ALLOWED;
+        if(vortex.getDatabase().ignores.isIgnored(tc))
+            result |= IGNORED;
+        return result;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.Constants;
+import com.jagrosh.vortex.utils.TimingWheel;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import net.dv8tion.jda.core.Permission;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.PermissionOverride;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.exceptions.PermissionException;
+
+/**
+ * Briefly hides a channel from members as a warning. A member who is already
+ * locked out of a channel just has their lockout extended, so a spammer costs
+ * one override update and one revert no matter how many warnings they earn.
+ * Reverts run on a shared timing wheel, and only undo what the lockout changed.
+ * Warnings in the same channel are gathered for a moment and sent as a single
+ * message, and a member isn't warned again while they're still locked out.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ChannelLockouts
+{
+    public static final long DURATION = 3000; // millis
+    public static final long WARNING_DELAY = 250; // millis
+    public static final long WARNING_DURATION = 1500; // millis
+    private static final String REASON = "Automod Warning";
+
+    private final TimingWheel wheel;
+    private final ConcurrentHashMap<Key,Lockout> lockouts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long,Warnings> warnings = new ConcurrentHashMap<>();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder extended = new LongAdder();
+
+    public ChannelLockouts(ScheduledExecutorService threadpool)
+    {
+        this.wheel = new TimingWheel(threadpool, 100, 64);
+    }
+
+    /**
+     * Locks a member out of a channel for {@link #DURATION}, or extends their
+     * lockout if they're already locked out, and warns them if they weren't
+     *
+     * @param member  the member
+     * @param channel the channel
+     * @param warning the warning to show them
+     */
+    public void lockout(Member member, TextChannel channel, String warning)
+    {
+        Key key = new Key(channel.getIdLong(), member.getUser().getIdLong());
+        long expires = System.currentTimeMillis() + DURATION;
+        Lockout fresh = new Lockout(member, channel, expires);
+        Lockout existing = lockouts.putIfAbsent(key, fresh);
+        if(existing!=null)
+        {
+            synchronized(existing)
+            {
+                if(!existing.reverted)
+                {
+                    existing.expires = Math.max(existing.expires, expires);
+                    extended.increment();
+                    return;
+                }
+            }
+            // the old lockout was just reverted, so start a new one
+            if(!lockouts.replace(key, existing, fresh))
+            {
+                lockout(member, channel, warning);
+                return;
+            }
+        }
+        started.increment();
+        apply(fresh);
+        warn(member, channel, warning);
+        wheel.schedule(DURATION, () -> expire(key, fresh));
+    }
+
+    // lockouts that were started, each with one override update
+    public long getStarted()
+    {
+        return started.sum();
+    }
+
+    // lockouts that were extended instead of being started again
+    public long getExtended()
+    {
+        return extended.sum();
+    }
+
+    public int getActive()
+    {
+        return lockouts.size();
+    }
+
+    private void apply(Lockout lockout)
+    {
+        try
+        {
+            PermissionOverride po = lockout.channel.getPermissionOverride(lockout.member);
+            if(po==null)
+            {
+                lockout.created = true;
+                lockout.channel.createPermissionOverride(lockout.member).setDeny(Permission.MESSAGE_READ).reason(REASON).queue(s->{}, f->{});
+            }
+            else if((po.getDeniedRaw() & Permission.MESSAGE_READ.getRawValue())==0)
+            {
+                lockout.denied = true;
+                po.getManager().deny(Permission.MESSAGE_READ).reason(REASON).queue(s->{}, f->{});
+            }
+        }
+        catch(PermissionException ex) {}
+    }
+
+    private void expire(Key key, Lockout lockout)
+    {
+        synchronized(lockout)
+        {
+            long remaining = lockout.expires - System.currentTimeMillis();
+            if(remaining>0)
+            {
+                // extended since this was scheduled
+                wheel.schedule(remaining, () -> expire(key, lockout));
+                return;
+            }
+            lockout.reverted = true;
+        }
+        lockouts.remove(key, lockout);
+        try
+        {
+            PermissionOverride po = lockout.channel.getPermissionOverride(lockout.member);
+            if(po==null)
+                return;
+            // only remove the override if it's still just the lockout
+            if(lockout.created && po.getAllowedRaw()==0 && po.getDeniedRaw()==Permission.MESSAGE_READ.getRawValue())
+                po.delete().reason(REASON).queue(s->{}, f->{});
+            else if(lockout.created || lockout.denied)
+                po.getManager().clear(Permission.MESSAGE_READ).reason(REASON).queue(s->{}, f->{});
+        }
+        catch(PermissionException ex) {}
+    }
+
+    private void warn(Member member, TextChannel channel, String warning)
+    {
+        while(true)
+        {
+            Warnings batch = warnings.computeIfAbsent(channel.getIdLong(), id ->
+            {
+                Warnings created = new Warnings(channel);
+                wheel.schedule(WARNING_DELAY, () -> send(created));
+                return created;
+            });
+            synchronized(batch)
+            {
+                if(batch.sent)
+                    continue;
+                batch.mentions.computeIfAbsent(warning, w -> new LinkedHashSet<>()).add(member.getAsMention());
+                return;
+            }
+        }
+    }
+
+    private void send(Warnings batch)
+    {
+        StringBuilder sb = new StringBuilder();
+        synchronized(batch)
+        {
+            batch.sent = true;
+            warnings.remove(batch.channel.getIdLong(), batch);
+            batch.mentions.forEach((warning, mentions) -> sb.append("\n").append(String.join(" ", mentions))
+                    .append(Constants.WARNING).append(" ").append(warning));
+        }
+        try
+        {
+            batch.channel.sendMessage(sb.toString().trim()).queue(m ->
+                    wheel.schedule(WARNING_DURATION, () -> m.delete().queue(s->{}, f->{})), f->{});
+        }
+        catch(PermissionException ex) {}
+    }
+
+    private static class Key
+    {
+        private final long channelId;
+        private final long userId;
+
+        private Key(long channelId, long userId)
+        {
+            this.channelId = channelId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof Key && ((Key)other).channelId==channelId && ((Key)other).userId==userId;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Long.hashCode(channelId*31 + userId);
+        }
+    }
+
+    private static class Lockout
+    {
+        private final Member member;
+        private final TextChannel channel;
+        private long expires;
+        private boolean created = false;
+        private boolean denied = false;
+        private boolean reverted = false;
+
+        private Lockout(Member member, TextChannel channel, long expires)
+        {
+            this.member = member;
+            this.channel = channel;
+            this.expires = expires;
+        }
+    }
+
+    private static class Warnings
+    {
+        private final TextChannel channel;
+        private final Map<String,Set<String>> mentions = new LinkedHashMap<>();
+        private boolean sent = false;
+
+        private Warnings(TextChannel channel)
+        {
+            this.channel = channel;
+        }
+    }
+}
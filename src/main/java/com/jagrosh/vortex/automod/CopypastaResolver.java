@@ -15,9 +15,13 @@
  */
 package com.jagrosh.vortex.automod;
 
+import com.jagrosh.vortex.utils.AhoCorasick;
+import com.jagrosh.vortex.utils.ConfusableFolder;
 import com.jagrosh.vortex.utils.OtherUtil;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -25,49 +29,111 @@ import java.util.HashMap;
  */
 public class CopypastaResolver
 {
-    private final HashMap<String, String[]> copypastas = new HashMap<>();
-    
+    // each copypasta tracks its required words as bits of a long
+    private static final int MAX_WORDS = 64;
+
+    private volatile Copypastas copypastas = new Copypastas(new String[0]);
+
     public void load()
     {
         String[] lines = OtherUtil.readLines("copypastas");
         if(lines.length!=0)
+            copypastas = new Copypastas(lines);
+    }
+
+    public String getCopypasta(MessageView message)
+    {
+        return copypastas.find(message.getFolded());
+    }
+
+    private static class Copypastas
+    {
+        private final String[] names;
+        private final long[] required;
+        // per word: which copypastas need it, and as which bit
+        private final int[][] wordOwners;
+        private final long[][] wordBits;
+        private final AhoCorasick automaton;
+
+        private Copypastas(String[] lines)
         {
-            copypastas.clear();
-            String name;
-            String[] words;
+            List<String> nameList = new ArrayList<>();
+            List<String> words = new ArrayList<>();
+            Map<String,Integer> wordIndex = new HashMap<>();
+            List<List<long[]>> owners = new ArrayList<>();
+            List<Long> requiredList = new ArrayList<>();
             for(String line: lines)
             {
-                name = line.substring(0, line.indexOf("||")).trim();
-                words = line.substring(line.indexOf("||")+2).trim().split("\\s+&&\\s+");
-                for(int i=0; i<words.length; i++)
-                    words[i] = words[i].trim().toLowerCase();
-                copypastas.put(name, words);
+                int split = line.indexOf("||");
+                if(split<0)
+                    continue;
+                String name = line.substring(0, split).trim();
+                String[] parts = line.substring(split+2).trim().split("\\s+&&\\s+");
+                int copypasta = nameList.size();
+                long mask = 0L;
+                for(int i=0; i<parts.length && i<MAX_WORDS; i++)
+                {
+                    String word = ConfusableFolder.fold(parts[i].trim());
+                    if(word.isEmpty())
+                        continue;
+                    Integer idx = wordIndex.get(word);
+                    if(idx==null)
+                    {
+                        idx = words.size();
+                        wordIndex.put(word, idx);
+                        words.add(word);
+                        owners.add(new ArrayList<>());
+                    }
+                    owners.get(idx).add(new long[]{copypasta, 1L<<i});
+                    mask |= 1L<<i;
+                }
+                if(mask==0L)
+                    continue;
+                nameList.add(name);
+                requiredList.add(mask);
+            }
+
+            names = nameList.toArray(new String[nameList.size()]);
+            required = new long[requiredList.size()];
+            for(int i=0; i<required.length; i++)
+                required[i] = requiredList.get(i);
+            wordOwners = new int[words.size()][];
+            wordBits = new long[words.size()][];
+            for(int w=0; w<words.size(); w++)
+            {
+                List<long[]> list = owners.get(w);
+                wordOwners[w] = new int[list.size()];
+                wordBits[w] = new long[list.size()];
+                for(int i=0; i<list.size(); i++)
+                {
+                    wordOwners[w][i] = (int)list.get(i)[0];
+                    wordBits[w][i] = list.get(i)[1];
+                }
             }
+            automaton = new AhoCorasick(words);
         }
-    }
-    
-    public String getCopypasta(String message)
-    {
-        String lower = message.toLowerCase();
-        boolean contains;
-        String[] words;
-        for(String name: copypastas.keySet())
+
+        private String find(String message)
         {
-            words = copypastas.get(name);
-            if(words==null || words.length==0)
-                continue;
-            contains = true;
-            for(String word: words)
+            if(names.length==0)
+                return null;
+            long[] found = new long[names.length];
+            int[] matched = {-1};
+            automaton.search(message, (word, end) ->
             {
-                if(!lower.contains(word))
+                for(int i=0; i<wordOwners[word].length; i++)
                 {
-                    contains = false;
-                    break;
+                    int copypasta = wordOwners[word][i];
+                    found[copypasta] |= wordBits[word][i];
+                    if(found[copypasta]==required[copypasta])
+                    {
+                        matched[0] = copypasta;
+                        return true;
+                    }
                 }
-            }
-            if(contains)
-                return name;
+                return false;
+            });
+            return matched[0]<0 ? null : names[matched[0]];
         }
-        return null;
     }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.LongRecordMap;
+import com.jagrosh.vortex.utils.SimHash;
+
+/**
+ * Remembers each member's last few messages as a ring of (hash, time, channel)
+ * slots, to catch the same message being posted over and over across many
+ * channels, which {@link DupeTracker} misses when the content alternates.
+ * Messages are compared by {@link SimHash}, so small changes between copies
+ * don't hide them. Everything is kept in primitive arrays, so recording a
+ * message doesn't allocate.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CrossChannelTracker
+{
+    public static final long WINDOW = 60000; // millis
+    public static final int RING = 16;
+    public static final int MAX_DISTANCE = 6; // bits
+    private static final int HEAD = 0, SLOTS = 1;
+    private static final int STRIDE = 3, HASH = 0, TIME = 1, CHANNEL = 2;
+    
+    private final LongRecordMap records = new LongRecordMap(SLOTS+RING*STRIDE, WINDOW);
+    
+    /**
+     * Records a message, and counts the earlier copies of it within the window
+     * and how many different channels the copies (including this one) are in
+     * 
+     * @param  guildId   the guild
+     * @param  userId    the author
+     * @param  channelId the channel
+     * @param  hash      the {@link SimHash} of the message content
+     * @param  time      the message time, in epoch millis
+     * @return the copies and channels, read with {@link #copies(long)} and {@link #channels(long)}
+     */
+    public long update(long guildId, long userId, long channelId, long hash, long time)
+    {
+        return records.update(guildId, userId, time, hash, channelId, time, (data, offset, last, h, channel, now) -> 
+        {
+            int copies = 0, channels = 1;
+            for(int i=0; i<RING; i++)
+            {
+                int slot = offset+SLOTS+i*STRIDE;
+                if(!matches(data, slot, h, now))
+                    continue;
+                copies++;
+                // only count each other channel the first time it shows up
+                long ch = data[slot+CHANNEL];
+                boolean seen = ch==channel;
+                for(int j=0; j<i && !seen; j++)
+                {
+                    int earlier = offset+SLOTS+j*STRIDE;
+                    seen = data[earlier+CHANNEL]==ch && matches(data, earlier, h, now);
+                }
+                if(!seen)
+                    channels++;
+            }
+            int slot = offset+SLOTS+(int)(data[offset+HEAD]++ % RING)*STRIDE;
+            data[slot+HASH] = h;
+            data[slot+TIME] = now;
+            data[slot+CHANNEL] = channel;
+            return (long)channels<<32 | copies;
+        });
+    }
+    
+    // earlier copies of the message within the window, at most RING
+    public static int copies(long result)
+    {
+        return (int)result;
+    }
+    
+    // different channels the message is in, including the current one
+    public static int channels(long result)
+    {
+        return (int)(result>>>32);
+    }
+    
+    public static boolean isCopy(long hash, long other)
+    {
+        return SimHash.distance(hash, other)<=MAX_DISTANCE;
+    }
+    
+    public void purge(long now)
+    {
+        records.purge(now);
+    }
+    
+    public int size(long now)
+    {
+        return records.size(now);
+    }
+    
+    private static boolean matches(long[] data, int slot, long hash, long now)
+    {
+        long time = data[slot+TIME];
+        return time!=0 && now-time<WINDOW && isCopy(data[slot+HASH], hash);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.exceptions.PermissionException;
+
+/**
+ * Gathers automod deletions per channel for a short time and sends them as
+ * bulk deletes, so a spam wave costs a handful of requests instead of one per
+ * message. A message that ends up alone in its batch, or that is too old for
+ * bulk deletion, is deleted on its own.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class DeletionCoalescer
+{
+    public static final long DELAY = 300; // millis
+    private static final int MAX_BULK = 100;
+    private static final long MAX_BULK_AGE = TimeUnit.DAYS.toMillis(14) - TimeUnit.MINUTES.toMillis(1);
+    private static final long DISCORD_EPOCH = 1420070400000L;
+
+    private final ScheduledExecutorService threadpool;
+    private final ConcurrentHashMap<Long, Batch> batches = new ConcurrentHashMap<>();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+
+    public DeletionCoalescer(ScheduledExecutorService threadpool)
+    {
+        this.threadpool = threadpool;
+    }
+
+    public void delete(Message message)
+    {
+        delete(message.getTextChannel(), message.getIdLong());
+    }
+
+    public void delete(TextChannel channel, long messageId)
+    {
+        while(true)
+        {
+            Batch batch = batches.get(channel.getIdLong());
+            if(batch==null)
+            {
+                batch = new Batch(channel);
+                Batch existing = batches.putIfAbsent(channel.getIdLong(), batch);
+                if(existing==null)
+                {
+                    Batch scheduled = batch;
+                    threadpool.schedule(() -> flush(scheduled), DELAY, TimeUnit.MILLISECONDS);
+                }
+                else
+                    batch = existing;
+            }
+            synchronized(batch)
+            {
+                // a batch that's already being sent can't take more, so start a new one
+                if(batch.closed)
+                    continue;
+                if(batch.ids.add(messageId))
+                    queued.increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes a message back out of its channel's batch, as long as the batch
+     * hasn't been sent yet
+     *
+     * @param  message the message
+     * @return true if the message was in a batch and won't be deleted
+     */
+    public boolean cancel(Message message)
+    {
+        Batch batch = batches.get(message.getTextChannel().getIdLong());
+        if(batch==null)
+            return false;
+        synchronized(batch)
+        {
+            if(batch.closed || !batch.ids.remove(message.getIdLong()))
+                return false;
+            queued.decrement();
+            return true;
+        }
+    }
+
+    // messages that have been queued for deletion, not counting repeats
+    public long getQueued()
+    {
+        return queued.sum();
+    }
+
+    public long getRequests()
+    {
+        return requests.sum();
+    }
+
+    public long getSaved()
+    {
+        return getQueued()-getRequests();
+    }
+
+    private void flush(Batch batch)
+    {
+        List<Long> ids;
+        synchronized(batch)
+        {
+            batch.closed = true;
+            batches.remove(batch.channel.getIdLong(), batch);
+            ids = new ArrayList<>(batch.ids);
+        }
+        long cutoff = System.currentTimeMillis() - MAX_BULK_AGE;
+        List<String> bulk = new ArrayList<>(ids.size());
+        for(long id: ids)
+        {
+            if((id>>>22)+DISCORD_EPOCH < cutoff)
+                deleteSingle(batch.channel, id);
+            else
+                bulk.add(Long.toString(id));
+        }
+        for(int i=0; i<bulk.size(); i+=MAX_BULK)
+        {
+            List<String> chunk = new ArrayList<>(bulk.subList(i, Math.min(i+MAX_BULK, bulk.size())));
+            if(chunk.size()==1)
+            {
+                deleteSingle(batch.channel, Long.parseLong(chunk.get(0)));
+                continue;
+            }
+            requests.increment();
+            try
+            {
+                batch.channel.deleteMessagesByIds(chunk).queue(s->{}, f->{});
+            }
+            catch(PermissionException ex) {}
+        }
+    }
+
+    private void deleteSingle(TextChannel channel, long id)
+    {
+        requests.increment();
+        try
+        {
+            channel.deleteMessageById(id).reason("Automod").queue(s->{}, f->{});
+        }
+        catch(PermissionException ex) {}
+    }
+
+    private static class Batch
+    {
+        private final TextChannel channel;
+        private final Set<Long> ids = new LinkedHashSet<>();
+        private boolean closed = false;
+
+        private Batch(TextChannel channel)
+        {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.OtherUtil;
+import java.net.IDN;
+import java.util.HashMap;
+
+/**
+ * Classifies hosts using a trie of reversed domain labels, so that a listed
+ * domain also covers all of its subdomains. The most specific listed domain
+ * wins, and referral wins if a domain is in both lists.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class DomainClassifier
+{
+    private String[] referralDomains = new String[0];
+    private String[] safeDomains = new String[0];
+    private volatile Node root = new Node();
+
+    public synchronized void loadReferralDomains()
+    {
+        referralDomains = OtherUtil.readLines("referral_domains");
+        rebuild();
+    }
+
+    public synchronized void loadSafeDomains()
+    {
+        safeDomains = OtherUtil.readLines("safe_domains");
+        rebuild();
+    }
+
+    public Classification classify(String host)
+    {
+        if(host==null || host.isEmpty())
+            return Classification.UNKNOWN;
+        Node node = root;
+        Classification result = Classification.UNKNOWN;
+        int end = host.length();
+        while(end>0 && host.charAt(end-1)=='.')
+            end--;
+        while(end>0)
+        {
+            int dot = host.lastIndexOf('.', end-1);
+            node = node.children.get(host.substring(dot+1, end).toLowerCase());
+            if(node==null)
+                break;
+            if(node.classification!=null)
+                result = node.classification;
+            end = dot;
+        }
+        return result;
+    }
+
+    public boolean isReferral(String host)
+    {
+        return classify(host)==Classification.REFERRAL;
+    }
+
+    // whether any of the links is a known referral link, or is on a referral domain
+    public boolean containsReferral(LinkScanner.Result links)
+    {
+        if(links.contains(LinkScanner.Type.REFERRAL))
+            return true;
+        for(int i=0; i<links.size(); i++)
+            if(links.getType(i)==LinkScanner.Type.HOST && isReferral(links.getText(i)))
+                return true;
+        return false;
+    }
+
+    public boolean isSafe(String host)
+    {
+        return classify(host)==Classification.SAFE;
+    }
+
+    // builds a fresh trie and swaps it in, so readers never see a partial one
+    private void rebuild()
+    {
+        Node newRoot = new Node();
+        for(String domain: safeDomains)
+            add(newRoot, domain, Classification.SAFE);
+        for(String domain: referralDomains)
+            add(newRoot, domain, Classification.REFERRAL);
+        root = newRoot;
+    }
+
+    private static void add(Node root, String domain, Classification classification)
+    {
+        String lower = domain.toLowerCase();
+        insert(root, lower, classification);
+        try
+        {
+            String ascii = IDN.toASCII(lower);
+            if(!ascii.equals(lower))
+                insert(root, ascii, classification);
+        }
+        catch(IllegalArgumentException ex) {}
+    }
+
+    private static void insert(Node root, String domain, Classification classification)
+    {
+        String[] labels = domain.split("\\.");
+        Node node = root;
+        for(int i=labels.length-1; i>=0; i--)
+        {
+            if(labels[i].isEmpty())
+                continue;
+            node = node.children.computeIfAbsent(labels[i], l -> new Node());
+        }
+        if(node!=root)
+            node.classification = classification;
+    }
+
+    public enum Classification
+    {
+        REFERRAL, SAFE, UNKNOWN
+    }
+
+    private static class Node
+    {
+        private final HashMap<String,Node> children = new HashMap<>();
+        private Classification classification = null;
+    }
+}
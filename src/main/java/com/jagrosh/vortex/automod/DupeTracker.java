@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.LongRecordMap;
+
+/**
+ * Counts how many times in a row each member has repeated the same message.
+ * Only a fingerprint of the content is kept, and members that stop posting
+ * are forgotten once the duplicate window passes.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class DupeTracker
+{
+    public static final long WINDOW = 30000; // millis
+    private static final int FINGERPRINT = 0, COUNT = 1;
+    
+    private final LongRecordMap records = new LongRecordMap(2, WINDOW);
+    
+    /**
+     * Records a message, returning how many times in a row the member has
+     * now repeated it within the window (0 for a new or different message)
+     * 
+     * @param  guildId     the guild
+     * @param  userId      the author
+     * @param  fingerprint the fingerprint of the message content
+     * @param  time        the message time, in epoch millis
+     * @return the number of repeats
+     */
+    public int update(long guildId, long userId, long fingerprint, long time)
+    {
+        return (int)records.update(guildId, userId, time, fingerprint, time, (data, offset, last, fp, now) -> 
+        {
+            if(last!=0 && data[offset+FINGERPRINT]==fp && now-last<WINDOW)
+                return ++data[offset+COUNT];
+            data[offset+FINGERPRINT] = fp;
+            data[offset+COUNT] = 0;
+            return 0;
+        });
+    }
+    
+    public void purge(long now)
+    {
+        records.purge(now);
+    }
+    
+    public int size(long now)
+    {
+        return records.size(now);
+    }
+}
@@ -15,6 +15,11 @@
  */
 package com.jagrosh.vortex.automod;
 
+import com.jagrosh.vortex.database.managers.FilterManager.Type;
+import com.jagrosh.vortex.utils.BoundedCharSequence;
+import com.jagrosh.vortex.utils.ConfusableFolder;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -22,64 +27,210 @@ import java.util.regex.PatternSyntaxException;
  *
  * @author John Grosh (john.a.grosh@gmail.com)
  */
-public abstract class Filter 
+public abstract class Filter
 {
+    public final int num;
     public final int strikes;
-    public abstract boolean test(String message);
-    
-    private Filter(int strikes)
+    public final String value;
+    public abstract boolean test(MessageView message);
+    public abstract Type getType();
+
+    public final boolean test(String message)
+    {
+        return test(new MessageView(message));
+    }
+
+    private Filter(int num, int strikes, String value)
     {
+        this.num = num;
         this.strikes = strikes;
+        this.value = value;
+    }
+
+    // folds the text (see ConfusableFolder), collapses whitespace to single spaces, and pads both ends with a space
+    public static String normalize(String text)
+    {
+        return collapse(ConfusableFolder.fold(text));
+    }
+
+    // the same as normalize, for text that's already folded
+    static String collapse(String text)
+    {
+        StringBuilder sb = new StringBuilder(text.length()+2).append(' ');
+        boolean space = true;
+        for(int i=0; i<text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if(Character.isWhitespace(c))
+            {
+                if(!space)
+                    sb.append(' ');
+                space = true;
+            }
+            else
+            {
+                sb.append(c);
+                space = false;
+            }
+        }
+        if(!space)
+            sb.append(' ');
+        return sb.toString();
     }
-    
+
     public static class WordFilter extends Filter
     {
         public final String word;
-        
-        public WordFilter(int strikes, String word)
+
+        public WordFilter(int num, int strikes, String word)
         {
-            super(strikes);
-            this.word = " "+word.replaceAll("\\s+", " ").toLowerCase()+" ";
+            super(num, strikes, word);
+            this.word = normalize(word.trim());
         }
-        
+
         @Override
-        public boolean test(String message) 
+        public boolean test(MessageView message)
         {
-            return (" "+message.replaceAll("\\s+", " ").toLowerCase()+" ").contains(word);
+            return message.getNormalized().contains(word);
+        }
+
+        @Override
+        public Type getType()
+        {
+            return Type.WORD;
         }
     }
-    
+
+    // '*' matches any part of a word, '?' matches a single character
     public static class GlobFilter extends Filter
     {
         public final String glob;
-        
-        public GlobFilter(int strikes, String glob)
+
+        public GlobFilter(int num, int strikes, String glob)
+        {
+            super(num, strikes, glob);
+            String padded = normalize(glob.trim());
+            this.glob = padded.length()>1 ? padded.substring(1, padded.length()-1) : "";
+        }
+
+        @Override
+        public boolean test(MessageView message)
+        {
+            return matchesNormalized(message.getNormalized());
+        }
+
+        /**
+         * Runs the glob as an NFA over already-normalized text; matches must
+         * start and end on word boundaries, and wildcards never cross a space
+         *
+         * @param  text text from {@link Filter#normalize(String)}
+         * @return true if the glob matches somewhere in the text
+         */
+        public boolean matchesNormalized(String text)
+        {
+            int m = glob.length();
+            if(m==0)
+                return false;
+            boolean[] states = new boolean[m+1];
+            boolean[] next = new boolean[m+1];
+            for(int i=1; i<text.length(); i++)
+            {
+                char c = text.charAt(i);
+                // a new attempt can start after every space
+                if(text.charAt(i-1)==' ')
+                    states[0] = true;
+                closure(states);
+                if(c==' ' && states[m])
+                    return true;
+                Arrays.fill(next, false);
+                for(int s=0; s<m; s++)
+                {
+                    if(!states[s])
+                        continue;
+                    char g = glob.charAt(s);
+                    if(g=='*')
+                        next[s] = next[s] || c!=' ';
+                    else if(g=='?' ? c!=' ' : g==c)
+                        next[s+1] = true;
+                }
+                boolean[] tmp = states;
+                states = next;
+                next = tmp;
+            }
+            return false;
+        }
+
+        private void closure(boolean[] states)
         {
-            super(strikes);
-            this.glob = glob.replaceAll("\\s+", " ").toLowerCase();
+            for(int s=0; s<glob.length(); s++)
+                if(states[s] && glob.charAt(s)=='*')
+                    states[s+1] = true;
         }
 
         @Override
-        public boolean test(String message)
+        public Type getType()
         {
-            throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+            return Type.GLOB;
         }
     }
-    
+
     public static class RegexFilter extends Filter
     {
+        // matching reads each character at least once per starting position it's tried from, so longer messages get more steps
+        public static final long BASE_STEPS = 100000;
+        public static final long STEPS_PER_CHAR = 1000;
+        public static final long MAX_NANOS = TimeUnit.MILLISECONDS.toNanos(25);
         public final Pattern pattern;
-        
-        public RegexFilter(int strikes, String pattern) throws PatternSyntaxException
+        public final boolean disabled;
+
+        public RegexFilter(int num, int strikes, String pattern) throws PatternSyntaxException
         {
-            super(strikes);
+            this(num, strikes, pattern, false);
+        }
+
+        public RegexFilter(int num, int strikes, String pattern, boolean disabled) throws PatternSyntaxException
+        {
+            super(num, strikes, pattern);
             this.pattern = Pattern.compile(pattern);
+            this.disabled = disabled;
+        }
+
+        // patterns that take too long to evaluate are treated as not matching
+        @Override
+        public boolean test(MessageView message)
+        {
+            try
+            {
+                return find(message.getContent(), MAX_NANOS);
+            }
+            catch(BoundedCharSequence.LimitExceededException ex)
+            {
+                return false;
+            }
+        }
+
+        /**
+         * Looks for the pattern with both a step and a time limit
+         *
+         * @param  message  the text to search
+         * @param  maxNanos the most time the search may take
+         * @return true if the pattern was found
+         * @throws BoundedCharSequence.LimitExceededException if either limit was hit
+         */
+        public boolean find(String message, long maxNanos)
+        {
+            return pattern.matcher(new BoundedCharSequence(message, maxSteps(message.length()), System.nanoTime()+maxNanos)).find();
+        }
+
+        public static long maxSteps(int length)
+        {
+            return BASE_STEPS+STEPS_PER_CHAR*length;
         }
 
         @Override
-        public boolean test(String message)
+        public Type getType()
         {
-            return pattern.matcher(message).find();
+            return Type.REGEX;
         }
     }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.automod.Filter.GlobFilter;
+import com.jagrosh.vortex.automod.Filter.RegexFilter;
+import com.jagrosh.vortex.automod.Filter.WordFilter;
+import com.jagrosh.vortex.utils.AhoCorasick;
+import com.jagrosh.vortex.utils.BoundedCharSequence.LimitExceededException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * All of a guild's filters compiled together. Word filters and the longest
+ * literal piece of each glob filter share one automaton, so a message is
+ * scanned once no matter how many filters there are; globs are only fully
+ * checked when their literal piece shows up. Regex filters are evaluated
+ * separately with step and time limits. A regex that can't be evaluated,
+ * because it hit a limit or the guild is out of budget, never counts as a
+ * match; the guard is told about it instead.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class FilterMatcher
+{
+    public static final FilterMatcher EMPTY = new FilterMatcher(Collections.emptyList());
+
+    private final List<Filter> filters;
+    private final Filter[] keyed;
+    private final AhoCorasick automaton;
+    private final RegexFilter[] regexes;
+
+    public FilterMatcher(List<Filter> filters)
+    {
+        this.filters = Collections.unmodifiableList(new ArrayList<>(filters));
+        List<Filter> keyedList = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<RegexFilter> regexList = new ArrayList<>();
+        for(Filter filter: filters)
+        {
+            if(filter instanceof WordFilter)
+            {
+                keyedList.add(filter);
+                keys.add(((WordFilter)filter).word);
+            }
+            else if(filter instanceof GlobFilter)
+            {
+                keyedList.add(filter);
+                keys.add(longestLiteral(" "+((GlobFilter)filter).glob+" "));
+            }
+            else if(filter instanceof RegexFilter)
+                regexList.add((RegexFilter)filter);
+        }
+        this.keyed = keyedList.toArray(new Filter[keyedList.size()]);
+        this.automaton = new AhoCorasick(keys);
+        this.regexes = regexList.toArray(new RegexFilter[regexList.size()]);
+    }
+
+    public List<Filter> getFilters()
+    {
+        return filters;
+    }
+
+    public boolean isEmpty()
+    {
+        return filters.isEmpty();
+    }
+
+    public Filter match(String message)
+    {
+        return match(new MessageView(message), null);
+    }
+
+    /**
+     * Finds the filter with the most strikes that matches the message
+     *
+     * @param  message the message to check
+     * @param  guard   limits and reports regex evaluation, may be null
+     * @return the matching filter, or null if none match
+     */
+    public Filter match(MessageView message, RegexGuard guard)
+    {
+        if(filters.isEmpty())
+            return null;
+        Filter[] best = new Filter[1];
+        if(keyed.length>0)
+        {
+            String text = message.getNormalized();
+            boolean[] checked = new boolean[keyed.length];
+            automaton.search(text, (key, end) ->
+            {
+                Filter filter = keyed[key];
+                if(checked[key] || (best[0]!=null && best[0].strikes>=filter.strikes))
+                    return false;
+                checked[key] = true;
+                if(filter instanceof GlobFilter && !((GlobFilter)filter).matchesNormalized(text))
+                    return false;
+                best[0] = filter;
+                return false;
+            });
+        }
+        for(RegexFilter regex: regexes)
+        {
+            if(regex.disabled || (best[0]!=null && regex.strikes<=best[0].strikes))
+                continue;
+            long allowed = guard==null ? RegexFilter.MAX_NANOS : Math.min(RegexFilter.MAX_NANOS, guard.remainingNanos());
+            if(allowed<=0)
+            {
+                if(guard!=null)
+                    guard.violation(regex, false);
+                continue;
+            }
+            long start = System.nanoTime();
+            try
+            {
+                if(regex.find(message.getContent(), allowed))
+                    best[0] = regex;
+            }
+            catch(LimitExceededException ex)
+            {
+                if(guard!=null)
+                    guard.violation(regex, ex.isStepLimit());
+            }
+            finally
+            {
+                if(guard!=null)
+                    guard.charge(System.nanoTime()-start);
+            }
+        }
+        return best[0];
+    }
+
+    public interface RegexGuard
+    {
+        long remainingNanos();
+
+        void charge(long nanos);
+
+        /**
+         * Called when a regex filter couldn't be evaluated on a message,
+         * which is then treated as not matching that filter
+         *
+         * @param filter    the filter that wasn't evaluated
+         * @param stepLimit true if the filter hit its step limit, false if it
+         *                  ran out of time or budget
+         */
+        void violation(RegexFilter filter, boolean stepLimit);
+    }
+
+    private static String longestLiteral(String glob)
+    {
+        int bestStart = 0;
+        int bestLength = 0;
+        int start = 0;
+        for(int i=0; i<=glob.length(); i++)
+        {
+            if(i==glob.length() || glob.charAt(i)=='*' || glob.charAt(i)=='?')
+            {
+                if(i-start>bestLength)
+                {
+                    bestStart = start;
+                    bestLength = i-start;
+                }
+                start = i+1;
+            }
+        }
+        return glob.substring(bestStart, bestStart+bestLength);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.LongRecordMap;
+
+/**
+ * A token bucket per member, for limiting how many messages they can send in
+ * an interval. Each bucket is a single long, with the time it was last
+ * refilled in the high bits and its tokens (in thousandths) in the low bits,
+ * plus a count of the messages that were over the limit since the bucket was
+ * last full. Members are forgotten once their bucket would be full again.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class FloodTracker
+{
+    public static final int MAX_MESSAGES = 100;
+    public static final int MAX_SECONDS = 60;
+    private static final int BUCKET = 0, DENIED = 1;
+    private static final int TOKEN_BITS = 20;
+    private static final long TOKEN_MASK = (1L<<TOKEN_BITS)-1;
+    private static final long TOKEN = 1000; // one message
+    
+    private final LongRecordMap records = new LongRecordMap(2, MAX_SECONDS*1000L);
+    
+    /**
+     * Takes a token from the member's bucket, which holds up to the given
+     * number of messages and refills completely over the given interval
+     * 
+     * @param  guildId  the guild
+     * @param  userId   the author
+     * @param  messages the number of messages allowed in the interval, at most {@link #MAX_MESSAGES}
+     * @param  interval the interval, in millis, at most {@link #MAX_SECONDS} seconds
+     * @param  time     the message time, in epoch millis
+     * @return 0 if the message is within the limit, otherwise how many messages have been over it since the bucket was last full
+     */
+    public int take(long guildId, long userId, int messages, long interval, long time)
+    {
+        return (int)records.update(guildId, userId, time, messages, interval, time, (data, offset, last, capacity, period, now) -> 
+        {
+            long max = capacity*TOKEN;
+            long bucket = data[offset+BUCKET];
+            long tokens = max;
+            long refilled = now;
+            if(last!=0)
+            {
+                // messages can arrive slightly out of order, so the refill time never goes back
+                refilled = Math.max(now, bucket>>>TOKEN_BITS);
+                tokens = Math.min(max, (bucket & TOKEN_MASK) + (refilled-(bucket>>>TOKEN_BITS))*max/period);
+            }
+            if(tokens<TOKEN)
+            {
+                data[offset+BUCKET] = refilled<<TOKEN_BITS | tokens;
+                return ++data[offset+DENIED];
+            }
+            // the flood is only over once the bucket has filled back up
+            if(tokens==max)
+                data[offset+DENIED] = 0;
+            data[offset+BUCKET] = refilled<<TOKEN_BITS | (tokens-TOKEN);
+            return 0;
+        });
+    }
+    
+    public void purge(long now)
+    {
+        records.purge(now);
+    }
+    
+    public int size(long now)
+    {
+        return records.size(now);
+    }
+}
@@ -15,32 +15,178 @@
  */
 package com.jagrosh.vortex.automod;
 
-import com.jagrosh.vortex.utils.FixedCache;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import net.dv8tion.jda.core.JDA;
 import net.dv8tion.jda.core.entities.Invite;
+import net.dv8tion.jda.core.exceptions.ErrorResponseException;
+import net.dv8tion.jda.core.requests.ErrorResponse;
 
 /**
+ * Finds which guild an invite code belongs to without blocking. Lookups for
+ * the same code share one request while it is in flight, and results are
+ * cached: guilds for a few hours, and invites that don't exist for a few
+ * minutes (since they could be created afterwards). Anything else that goes
+ * wrong, like being rate limited, isn't cached at all.
  *
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class InviteResolver
 {
-    private final FixedCache<String,Long> cached = new FixedCache<>(200);
-    
-    public long resolve(JDA jda, String code)
+    public static final long TTL = TimeUnit.HOURS.toMillis(6);
+    public static final long NEGATIVE_TTL = TimeUnit.MINUTES.toMillis(10);
+    private static final int MAX_SIZE = 50000;
+    private static final Lookup REQUEST = (jda, code, success, failure) -> Invite.resolve(jda, code).queue(i -> success.accept(i.getGuild().getIdLong()), f ->
     {
-        if(cached.contains(code))
-            return cached.get(code);
+        if(f instanceof ErrorResponseException && ((ErrorResponseException)f).getErrorResponse()==ErrorResponse.UNKNOWN_INVITE)
+            success.accept(0L);
+        else
+            failure.accept(f);
+    });
+
+    private final Lookup lookup;
+
+    private final ConcurrentHashMap<String,Resolved> cached = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String,CompletableFuture<Long>> pending = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public InviteResolver()
+    {
+        this(REQUEST);
+    }
+
+    // the tests answer lookups themselves
+    InviteResolver(Lookup lookup)
+    {
+        this.lookup = lookup;
+    }
+
+    /**
+     * @param  code the invite code
+     * @return the id of the invite's guild, or null if it isn't cached
+     */
+    public Long getCached(String code)
+    {
+        Resolved r = cached.get(code);
+        return r==null || r.isExpired(System.currentTimeMillis()) ? null : r.guildId;
+    }
+
+    /**
+     * Looks up an invite, from the cache if possible
+     *
+     * @param  jda  the JDA instance to make the request with
+     * @param  code the invite code
+     * @return a future with the id of the invite's guild, or 0 if the invite
+     *         doesn't exist; it completes exceptionally if the lookup failed
+     */
+    public CompletableFuture<Long> resolve(JDA jda, String code)
+    {
+        Long guildId = getCached(code);
+        if(guildId!=null)
+        {
+            hits.increment();
+            return CompletableFuture.completedFuture(guildId);
+        }
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        CompletableFuture<Long> existing = pending.putIfAbsent(code, future);
+        if(existing!=null)
+        {
+            coalesced.increment();
+            return existing;
+        }
+        misses.increment();
         try
         {
-            Invite i = Invite.resolve(jda, code).complete();
-            cached.put(code, i.getGuild().getIdLong());
-            return i.getGuild().getIdLong();
+            lookup.resolve(jda, code, id ->
+            {
+                cache(code, id, id==0L ? NEGATIVE_TTL : TTL);
+                pending.remove(code);
+                future.complete(id);
+            }, f ->
+            {
+                failures.increment();
+                pending.remove(code);
+                future.completeExceptionally(f);
+            });
         }
         catch(Exception ex)
         {
-            cached.put(code, 0L);
-            return 0L;
+            failures.increment();
+            pending.remove(code);
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    public void cleanup()
+    {
+        long now = System.currentTimeMillis();
+        cached.values().removeIf(r -> r.isExpired(now));
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    // lookups that joined a request that was already in flight
+    public long getCoalesced()
+    {
+        return coalesced.sum();
+    }
+
+    public long getFailures()
+    {
+        return failures.sum();
+    }
+
+    public int size()
+    {
+        return cached.size();
+    }
+
+    private void cache(String code, long guildId, long ttl)
+    {
+        if(cached.size()>=MAX_SIZE)
+        {
+            cleanup();
+            if(cached.size()>=MAX_SIZE)
+                return;
+        }
+        cached.put(code, new Resolved(guildId, System.currentTimeMillis()+ttl));
+    }
+
+    // finds an invite's guild, with 0 if the invite doesn't exist, or fails
+    interface Lookup
+    {
+        void resolve(JDA jda, String code, Consumer<Long> success, Consumer<Throwable> failure);
+    }
+
+    private static class Resolved
+    {
+        private final long guildId;
+        private final long expires;
+
+        private Resolved(long guildId, long expires)
+        {
+            this.guildId = guildId;
+            this.expires = expires;
+        }
+
+        private boolean isExpired(long now)
+        {
+            return now>=expires;
         }
     }
 }
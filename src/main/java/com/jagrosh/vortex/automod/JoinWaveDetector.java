@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.LongRecordMap;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.core.entities.User;
+
+/**
+ * Spots waves of look-alike accounts joining a guild, even when they join too
+ * slowly to trip the join rate. Each guild keeps a small rolling sketch of its
+ * recent joins: how many accounts were created around the same time (and how
+ * many of those still have a default avatar), and how many had a similar
+ * username, using MinHash signatures over the name's character trigrams,
+ * split into bands so similar names land in the same bucket.
+ *
+ * <p>Every join touches a fixed number of buckets, so a join costs the same no
+ * matter how large the guild is or how many joins came before it. Buckets are
+ * counted over two half-windows, so counts roll off smoothly after
+ * {@link #WINDOW}. When buckets collide, the one with the fewest joins is
+ * replaced, which keeps a wave's buckets around while it is happening.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class JoinWaveDetector
+{
+    public static final long WINDOW = TimeUnit.MINUTES.toMillis(10);
+    public static final long CREATION_SLOT = TimeUnit.MINUTES.toMillis(5);
+    private static final long HALF_WINDOW = WINDOW/2;
+    private static final long DISCORD_EPOCH = 1420070400000L;
+
+    private static final int HASHES = 8, ROWS = 2, BANDS = HASHES/ROWS;
+    private static final int SLOTS = 32;
+    // slot layout: key (0 if unused), epoch, current count, previous count, current defaults, previous defaults
+    private static final int KEY = 0, EPOCH = 1, CUR = 2, PREV = 3, CUR_DEFAULT = 4, PREV_DEFAULT = 5, SLOT_WIDTH = 6;
+    private static final int CREATED = 0, NAMES = SLOTS*SLOT_WIDTH;
+
+    private final LongRecordMap sketches = new LongRecordMap(2*SLOTS*SLOT_WIDTH, WINDOW, 16, 16);
+
+    /**
+     * Records a join and checks whether it is part of a wave. A join is part of
+     * a wave when at least two of these reach the threshold: accounts created
+     * within {@link #CREATION_SLOT} of this one, accounts with a similar name,
+     * and accounts created around the same time that have a default avatar.
+     *
+     * @param  guildId   the guild
+     * @param  user      the user that joined
+     * @param  time      the join time, in epoch millis
+     * @param  threshold how many similar accounts make a wave
+     * @return the size of the wave if this join is part of one, otherwise 0
+     */
+    public int join(long guildId, User user, long time, int threshold)
+    {
+        long created = (user.getIdLong()>>>22) + DISCORD_EPOCH;
+        long[] bands = bands(user.getName());
+        long isDefault = user.getAvatarId()==null ? 1 : 0;
+        return (int)sketches.update(guildId, 0L, time, time/HALF_WINDOW, isDefault, (data, offset, last, epoch, def) ->
+        {
+            // creation times are bucketed, so count this bucket and both of its neighbours
+            long slot = created/CREATION_SLOT + 1; // keys can't be 0
+            add(data, offset+CREATED, slot, epoch, def);
+            long similarAge = 0, defaults = 0;
+            for(long s = slot-1; s<=slot+1; s++)
+            {
+                int base = find(data, offset+CREATED, s, epoch);
+                if(base>=0)
+                {
+                    similarAge += data[base+CUR] + data[base+PREV];
+                    defaults += data[base+CUR_DEFAULT] + data[base+PREV_DEFAULT];
+                }
+            }
+            long similarName = 0;
+            for(long band: bands)
+                similarName = Math.max(similarName, add(data, offset+NAMES, band, epoch, 0));
+
+            int signals = (similarAge>=threshold ? 1 : 0) + (similarName>=threshold ? 1 : 0) + (defaults>=threshold ? 1 : 0);
+            return signals>=2 ? Math.max(similarAge, similarName) : 0;
+        });
+    }
+
+    public void purge(long now)
+    {
+        sketches.purge(now);
+    }
+
+    public int size(long now)
+    {
+        return sketches.size(now);
+    }
+
+    // counts a join in the key's bucket, returning the bucket's count
+    private static long add(long[] data, int table, long key, long epoch, long isDefault)
+    {
+        int base = find(data, table, key, epoch);
+        if(base<0)
+        {
+            // take whichever of the two candidate buckets has the fewest joins
+            int a = table + slotFor(key)*SLOT_WIDTH;
+            int b = table + ((slotFor(key)+1)%SLOTS)*SLOT_WIDTH;
+            base = count(data, a, epoch)<=count(data, b, epoch) ? a : b;
+            for(int i=0; i<SLOT_WIDTH; i++)
+                data[base+i] = 0;
+            data[base+KEY] = key;
+            data[base+EPOCH] = epoch;
+        }
+        data[base+CUR]++;
+        data[base+CUR_DEFAULT] += isDefault;
+        return data[base+CUR] + data[base+PREV];
+    }
+
+    // finds the key's bucket, rolling its counts forward to the epoch, or returns -1
+    private static int find(long[] data, int table, long key, long epoch)
+    {
+        int slot = slotFor(key);
+        for(int i=0; i<2; i++)
+        {
+            int base = table + ((slot+i)%SLOTS)*SLOT_WIDTH;
+            if(data[base+KEY]==key)
+            {
+                roll(data, base, epoch);
+                return base;
+            }
+        }
+        return -1;
+    }
+
+    private static long count(long[] data, int base, long epoch)
+    {
+        if(data[base+KEY]==0)
+            return 0;
+        roll(data, base, epoch);
+        return data[base+CUR] + data[base+PREV];
+    }
+
+    private static void roll(long[] data, int base, long epoch)
+    {
+        long age = epoch - data[base+EPOCH];
+        if(age<=0)
+            return;
+        data[base+PREV] = age==1 ? data[base+CUR] : 0;
+        data[base+PREV_DEFAULT] = age==1 ? data[base+CUR_DEFAULT] : 0;
+        data[base+CUR] = 0;
+        data[base+CUR_DEFAULT] = 0;
+        data[base+EPOCH] = epoch;
+    }
+
+    private static int slotFor(long key)
+    {
+        return (int)((mix(key)>>>32)%SLOTS);
+    }
+
+    // the MinHash signature of the name's trigrams, folded into one bucket key per band
+    static long[] bands(String name)
+    {
+        long[] mins = new long[HASHES];
+        for(int i=0; i<HASHES; i++)
+            mins[i] = Long.MAX_VALUE;
+        // digits are treated as the same character, so 'raider123' and 'raider456' look alike
+        StringBuilder sb = new StringBuilder(name.length());
+        for(int i=0; i<name.length(); i++)
+        {
+            char c = Character.toLowerCase(name.charAt(i));
+            sb.append(Character.isDigit(c) ? '0' : c);
+        }
+        int shingles = Math.max(1, sb.length()-2);
+        for(int i=0; i<shingles; i++)
+        {
+            long shingle = 0;
+            for(int j=i; j<Math.min(i+3, sb.length()); j++)
+                shingle = shingle<<16 | sb.charAt(j);
+            for(int h=0; h<HASHES; h++)
+                mins[h] = Math.min(mins[h], mix(shingle ^ SEEDS[h]));
+        }
+        long[] bands = new long[BANDS];
+        for(int b=0; b<BANDS; b++)
+        {
+            long key = b+1;
+            for(int r=0; r<ROWS; r++)
+                key = mix(key*31 + mins[b*ROWS+r]);
+            bands[b] = key==0 ? 1 : key;
+        }
+        return bands;
+    }
+
+    private static long mix(long h)
+    {
+        h ^= h>>>33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h>>>33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h>>>33;
+        return h;
+    }
+
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+        0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x27D4EB2F165667C5L, 0x85EBCA77C2B2AE63L
+    };
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hand-written lexer that finds invites, links, hosts and referral parameters
+ * in a single pass over a message. Content without any links is scanned
+ * without allocating anything.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class LinkScanner
+{
+    private LinkScanner() {}
+
+    public static Result scan(String content)
+    {
+        if(content==null || content.isEmpty())
+            return Result.EMPTY;
+        Result result = Result.EMPTY;
+        int len = content.length();
+        int urlResume = 0;
+        int inviteResume = 0;
+        for(int i=0; i<len; i++)
+        {
+            char c = content.charAt(i);
+            if(i>=urlResume && (c=='h' || c=='H'))
+            {
+                int end = matchUrl(content, i);
+                if(end>0)
+                {
+                    if(result==Result.EMPTY)
+                        result = new Result(content);
+                    result.add(Type.URL, i, end);
+                    int schemeEnd = content.indexOf("://", i)+3;
+                    int hostEnd = hostEnd(content, schemeEnd, end);
+                    int hostStart = hostStart(content, schemeEnd, hostEnd);
+                    int port = content.indexOf(':', hostStart);
+                    if(port>=0 && port<hostEnd)
+                        hostEnd = port;
+                    if(hostStart<hostEnd)
+                        result.add(Type.HOST, hostStart, hostEnd);
+                    findReferral(result, content, schemeEnd, end);
+                    urlResume = end;
+                }
+            }
+            if(i>=inviteResume && (c=='d' || c=='D'))
+            {
+                int codeStart = matchInvite(content, i);
+                if(codeStart>0)
+                {
+                    int end = codeStart;
+                    while(end<len && end-codeStart<18 && isCodeChar(content.charAt(end)))
+                        end++;
+                    if(end-codeStart>=2)
+                    {
+                        if(result==Result.EMPTY)
+                            result = new Result(content);
+                        result.add(Type.INVITE, codeStart, end);
+                        inviteResume = end;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // returns the end of the url starting at i, or -1 if there is no url here
+    private static int matchUrl(String s, int i)
+    {
+        if(!s.regionMatches(true, i, "http", 0, 4))
+            return -1;
+        int j = i+4;
+        if(j<s.length() && (s.charAt(j)=='s' || s.charAt(j)=='S'))
+            j++;
+        if(!s.startsWith("://", j))
+            return -1;
+        j += 3;
+        int end = j;
+        while(end<s.length() && !isSpace(s.charAt(end)))
+            end++;
+        return end>j ? end : -1;
+    }
+
+    // returns the start of the invite code following "discord" at i, or -1 if this isn't an invite
+    private static int matchInvite(String s, int i)
+    {
+        if(!s.regionMatches(true, i, "discord", 0, 7))
+            return -1;
+        int j = optionalSpace(s, i+7);
+        if(s.regionMatches(true, j, "app", 0, 3))
+        {
+            j = optionalSpace(s, j+3);
+            if(!s.startsWith(".", j))
+                return -1;
+            j = optionalSpace(s, j+1);
+            if(!s.regionMatches(true, j, "com", 0, 3))
+                return -1;
+            j = optionalSpace(s, j+3);
+            if(!s.startsWith("/", j))
+                return -1;
+            j = optionalSpace(s, j+1);
+            if(!s.regionMatches(true, j, "invite", 0, 6))
+                return -1;
+            j += 6;
+        }
+        else
+        {
+            if(s.startsWith(".", j))
+                j += 1;
+            else if(s.regionMatches(true, j, "dot", 0, 3))
+                j += 3;
+            else if(s.startsWith("(.)", j))
+                j += 3;
+            else if(s.regionMatches(true, j, "(dot)", 0, 5))
+                j += 5;
+            else
+                return -1;
+            j = optionalSpace(s, j);
+            if(!s.regionMatches(true, j, "gg", 0, 2))
+                return -1;
+            j += 2;
+        }
+        j = optionalSpace(s, j);
+        if(!s.startsWith("/", j))
+            return -1;
+        return optionalSpace(s, j+1);
+    }
+
+    private static void findReferral(Result result, String s, int from, int end)
+    {
+        // the referral marker needs at least one character on either side of it
+        for(int i=from+1; i<end-1; i++)
+        {
+            char c = s.charAt(i);
+            int markerEnd = -1;
+            if(c=='/' && s.regionMatches(true, i, "/ref/", 0, 5))
+                markerEnd = i+5;
+            else if((c=='?' || c=='&' || c=='#') && s.regionMatches(true, i+1, "ref", 0, 3))
+            {
+                int j = i+4;
+                if(s.regionMatches(true, j, "errer", 0, 5) || s.regionMatches(true, j, "erral", 0, 5))
+                    j += 5;
+                if(s.startsWith("=", j))
+                    markerEnd = j+1;
+            }
+            if(markerEnd>0 && markerEnd<end)
+            {
+                result.add(Type.REFERRAL, i, end);
+                return;
+            }
+        }
+    }
+
+    private static int hostEnd(String s, int from, int end)
+    {
+        for(int i=from; i<end; i++)
+        {
+            char c = s.charAt(i);
+            if(c=='/' || c=='?' || c=='#' || c=='\\')
+                return i;
+        }
+        return end;
+    }
+
+    private static int hostStart(String s, int from, int hostEnd)
+    {
+        int at = s.lastIndexOf('@', hostEnd-1);
+        return at>=from ? at+1 : from;
+    }
+
+    private static int optionalSpace(String s, int i)
+    {
+        return i<s.length() && isSpace(s.charAt(i)) ? i+1 : i;
+    }
+
+    private static boolean isCodeChar(char c)
+    {
+        return (c>='a' && c<='z') || (c>='A' && c<='Z') || (c>='0' && c<='9') || c=='-';
+    }
+
+    // matches the regex \s character class
+    private static boolean isSpace(char c)
+    {
+        return c==' ' || c=='\t' || c=='\n' || c=='\u000B' || c=='\f' || c=='\r';
+    }
+
+    public enum Type
+    {
+        INVITE, URL, HOST, REFERRAL
+    }
+
+    public static class Result
+    {
+        public static final Result EMPTY = new Result(null);
+
+        private final String content;
+        private Type[] types;
+        private int[] bounds;
+        private int size = 0;
+
+        private Result(String content)
+        {
+            this.content = content;
+        }
+
+        private void add(Type type, int start, int end)
+        {
+            if(types==null)
+            {
+                types = new Type[4];
+                bounds = new int[8];
+            }
+            else if(size==types.length)
+            {
+                types = Arrays.copyOf(types, size*2);
+                bounds = Arrays.copyOf(bounds, size*4);
+            }
+            types[size] = type;
+            bounds[size*2] = start;
+            bounds[size*2+1] = end;
+            size++;
+        }
+
+        public boolean isEmpty()
+        {
+            return size==0;
+        }
+
+        public int size()
+        {
+            return size;
+        }
+
+        public Type getType(int index)
+        {
+            return types[index];
+        }
+
+        public int getStart(int index)
+        {
+            return bounds[index*2];
+        }
+
+        public int getEnd(int index)
+        {
+            return bounds[index*2+1];
+        }
+
+        // hosts are returned in lowercase, everything else as it was written
+        public String getText(int index)
+        {
+            String text = content.substring(getStart(index), getEnd(index));
+            return types[index]==Type.HOST ? text.toLowerCase() : text;
+        }
+
+        public boolean contains(Type type)
+        {
+            for(int i=0; i<size; i++)
+                if(types[i]==type)
+                    return true;
+            return false;
+        }
+
+        public List<String> get(Type type)
+        {
+            if(!contains(type))
+                return Collections.emptyList();
+            List<String> list = new ArrayList<>();
+            for(int i=0; i<size; i++)
+                if(types[i]==type)
+                    list.add(getText(i));
+            return list;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.utils.LongRecordMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+import net.dv8tion.jda.core.Permission;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.TextChannel;
+
+/**
+ * Caches why (if at all) a member is exempt from automod, as a bit field per
+ * member, along with whether they can manage messages in the last channel
+ * they were checked in. Checking a member is then a single lookup instead of
+ * walking their roles for each permission.
+ *
+ * <p>A member's entry is dropped when their roles change. Anything that could
+ * change many members at once (role permissions or positions, channel
+ * overrides, the owner, ignored roles) bumps a generation number for the
+ * guild instead, which makes all of the guild's entries stale. Generations
+ * are kept in a fixed array that guilds share, so one guild's changes may
+ * also cause a few other guilds to be checked again.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class MemberExemptions
+{
+    public static final int BOT = 1;
+    public static final int CANT_INTERACT = 1<<1;
+    public static final int KICK_MEMBERS = 1<<2;
+    public static final int BAN_MEMBERS = 1<<3;
+    public static final int MANAGE_SERVER = 1<<4;
+    public static final int IGNORED_ROLE = 1<<5;
+    public static final int MANAGE_MESSAGES = 1<<6; // in the channel
+    private static final long KNOWN = 1L<<30;
+    private static final long NEEDS_CHANNEL = 1L<<31;
+    private static final long TTL = TimeUnit.HOURS.toMillis(1);
+    private static final int GENERATIONS = 1024;
+    private static final int GENERATION = 0, GUILD_BITS = 1, CHANNEL = 2, CHANNEL_BITS = 3;
+
+    private final Predicate<Member> ignored;
+    private final LongRecordMap records = new LongRecordMap(4, TTL);
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATIONS);
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public MemberExemptions(Vortex vortex)
+    {
+        this(member -> vortex.getDatabase().ignores.isIgnored(member));
+    }
+
+    // the tests check members without a database
+    MemberExemptions(Predicate<Member> ignored)
+    {
+        this.ignored = ignored;
+    }
+
+    /**
+     * @param  member  the member
+     * @param  channel the channel they are in, or null to only check the guild
+     * @return the reasons the member is exempt, or 0 if they aren't
+     */
+    public int get(Member member, TextChannel channel)
+    {
+        long guildId = member.getGuild().getIdLong();
+        long generation = generations.get(generationFor(guildId));
+        long channelId = channel==null ? 0L : channel.getIdLong();
+        long now = System.currentTimeMillis();
+        long cached = records.update(guildId, member.getUser().getIdLong(), now, generation, channelId, (data, offset, last, gen, ch) ->
+        {
+            if(data[offset+GUILD_BITS]==0 || data[offset+GENERATION]!=gen)
+                return 0;
+            if(ch==0 || data[offset+CHANNEL]==ch)
+                return data[offset+GUILD_BITS] | (ch==0 ? 0 : data[offset+CHANNEL_BITS]);
+            return data[offset+GUILD_BITS] | NEEDS_CHANNEL;
+        });
+        if(cached!=0 && (cached & NEEDS_CHANNEL)==0)
+            return (int)(cached & ~KNOWN);
+
+        long invalidated = invalidations.get();
+        long guildBits = cached!=0 ? cached & ~NEEDS_CHANNEL : computeGuild(member) | KNOWN;
+        long channelBits = channel!=null && member.hasPermission(channel, Permission.MESSAGE_MANAGE) ? MANAGE_MESSAGES : 0;
+        records.update(guildId, member.getUser().getIdLong(), now, generation, channelId, (data, offset, last, gen, ch) ->
+        {
+            data[offset+GENERATION] = gen;
+            data[offset+GUILD_BITS] = guildBits;
+            if(ch!=0)
+            {
+                data[offset+CHANNEL] = ch;
+                data[offset+CHANNEL_BITS] = channelBits;
+            }
+            return 0;
+        });
+        // if anything was invalidated in the meantime, this may already be out of date
+        if(invalidations.get()!=invalidated)
+            records.remove(guildId, member.getUser().getIdLong());
+        return (int)((guildBits | channelBits) & ~KNOWN);
+    }
+
+    // the member's roles changed, or they left
+    public void invalidate(Member member)
+    {
+        invalidations.incrementAndGet();
+        records.remove(member.getGuild().getIdLong(), member.getUser().getIdLong());
+    }
+
+    // something changed that could affect any member of the guild
+    public void invalidate(Guild guild)
+    {
+        invalidations.incrementAndGet();
+        generations.incrementAndGet(generationFor(guild.getIdLong()));
+    }
+
+    public void purge()
+    {
+        records.purge(System.currentTimeMillis());
+    }
+
+    private int computeGuild(Member member)
+    {
+        int bits = 0;
+        if(member.getUser().isBot())
+            bits |= BOT;
+        if(!member.getGuild().getSelfMember().canInteract(member))
+            bits |= CANT_INTERACT;
+        if(member.hasPermission(Permission.KICK_MEMBERS))
+            bits |= KICK_MEMBERS;
+        if(member.hasPermission(Permission.BAN_MEMBERS))
+            bits |= BAN_MEMBERS;
+        if(member.hasPermission(Permission.MANAGE_SERVER))
+            bits |= MANAGE_SERVER;
+        if(ignored.test(member))
+            bits |= IGNORED_ROLE;
+        return bits;
+    }
+
+    private static int generationFor(long guildId)
+    {
+        long h = guildId*0x9E3779B97F4A7C15L;
+        return (int)((h>>>32)%GENERATIONS);
+    }
+}
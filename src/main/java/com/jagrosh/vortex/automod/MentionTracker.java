@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.LongRecordMap;
+import java.util.Set;
+
+/**
+ * Counts the different users (or roles) each member has mentioned over the
+ * last minute, so mentions split across several messages add up. Each member
+ * has a few time buckets, each with a 128-bit bitmap of the IDs mentioned in
+ * it, so the same ID mentioned again isn't counted twice. The count is the
+ * number of bits set in the combined bitmap, which never goes above the real
+ * number of IDs: it's exact unless two IDs share a bit, and then it comes up
+ * short, so a member mentioning exactly the limit is never punished for it.
+ * Recording a message only touches primitive arrays.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class MentionTracker
+{
+    public static final long WINDOW = 60000; // millis
+    private static final int BUCKETS = 6;
+    private static final long BUCKET_MILLIS = WINDOW/BUCKETS;
+    private static final int STRIDE = 3, EPOCH = 0, LOW = 1, HIGH = 2;
+    
+    private final LongRecordMap records = new LongRecordMap(BUCKETS*STRIDE, WINDOW);
+    
+    /**
+     * Records the IDs mentioned in a message
+     * 
+     * @param  guildId   the guild
+     * @param  userId    the author
+     * @param  mentioned the mentioned IDs
+     * @param  time      the message time, in epoch millis
+     * @return the mentions in the window before and after this message, read with {@link #before(long)} and {@link #after(long)}
+     */
+    public long record(long guildId, long userId, Set<Long> mentioned, long time)
+    {
+        long low = 0, high = 0;
+        for(long id: mentioned)
+        {
+            int bit = (int)((id*0x9E3779B97F4A7C15L)>>>57);
+            if(bit<64)
+                low |= 1L<<bit;
+            else
+                high |= 1L<<(bit-64);
+        }
+        return records.update(guildId, userId, time, low, high, time, (data, offset, last, lo, hi, now) -> 
+        {
+            long epoch = now/BUCKET_MILLIS;
+            long seenLow = 0, seenHigh = 0;
+            int current = offset+(int)(epoch%BUCKETS)*STRIDE;
+            for(int i=0; i<BUCKETS; i++)
+            {
+                int bucket = offset+i*STRIDE;
+                if(epoch-data[bucket+EPOCH]<BUCKETS && data[bucket+EPOCH]<=epoch)
+                {
+                    seenLow |= data[bucket+LOW];
+                    seenHigh |= data[bucket+HIGH];
+                }
+            }
+            if(data[current+EPOCH]<epoch)
+            {
+                data[current+EPOCH] = epoch;
+                data[current+LOW] = 0;
+                data[current+HIGH] = 0;
+            }
+            data[current+LOW] |= lo;
+            data[current+HIGH] |= hi;
+            return (long)count(seenLow, seenHigh)<<32 | count(seenLow|lo, seenHigh|hi);
+        });
+    }
+    
+    public static int before(long result)
+    {
+        return (int)(result>>>32);
+    }
+    
+    public static int after(long result)
+    {
+        return (int)result;
+    }
+    
+    public void purge(long now)
+    {
+        records.purge(now);
+    }
+    
+    // a lower bound; estimating the collisions (linear counting) would round
+    // a window of exactly n IDs up to n+1 once n reaches about 11
+    private static int count(long low, long high)
+    {
+        return Long.bitCount(low) + Long.bitCount(high);
+    }
+}
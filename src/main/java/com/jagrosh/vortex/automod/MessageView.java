@@ -0,0 +1,229 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.AhoCorasick;
+import com.jagrosh.vortex.utils.ConfusableFolder;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.Role;
+import net.dv8tion.jda.core.entities.User;
+
+/**
+ * The different forms of a message's content that automod looks at. Each one
+ * is worked out the first time it's asked for and then kept, so no matter how
+ * many rules and filters look at a message, it's only normalized once. Not
+ * thread-safe; anything handed off to another thread should be computed first.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class MessageView
+{
+    private final Message message;
+    private final String content;
+
+    private String lowerCase;
+    private String folded;
+    private long foldStats;
+    private String normalized;
+    private int lineCount = -1;
+    private int[] codePointStats;
+    private LinkScanner.Result links;
+    private Set<Long> mentionedUsers;
+    private Set<Long> mentionedRoles;
+
+    public MessageView(Message message)
+    {
+        this.message = message;
+        this.content = message.getContentRaw();
+    }
+
+    // a view of plain text, with no mentions
+    public MessageView(String content)
+    {
+        this.message = null;
+        this.content = content;
+    }
+
+    public Message getMessage()
+    {
+        return message;
+    }
+
+    public String getContent()
+    {
+        return content;
+    }
+
+    // the content with each character case-folded, the same length as the content
+    public String getLowerCase()
+    {
+        if(lowerCase==null)
+        {
+            char[] chars = content.toCharArray();
+            for(int i=0; i<chars.length; i++)
+                chars[i] = AhoCorasick.fold(chars[i]);
+            lowerCase = new String(chars);
+        }
+        return lowerCase;
+    }
+
+    // case-folded with lookalikes replaced and combining marks dropped, see ConfusableFolder
+    public String getFolded()
+    {
+        if(folded==null)
+        {
+            StringBuilder sb = ConfusableFolder.buffer();
+            foldStats = ConfusableFolder.fold(content, sb);
+            folded = ConfusableFolder.changed(foldStats) ? sb.toString() : content;
+        }
+        return folded;
+    }
+
+    // combining marks that were dropped from the folded content
+    public int getMarkCount()
+    {
+        getFolded();
+        return ConfusableFolder.marks(foldStats);
+    }
+
+    // symbols (mostly emoji) in the content
+    public int getSymbolCount()
+    {
+        getFolded();
+        return ConfusableFolder.symbols(foldStats);
+    }
+
+    // folded with whitespace collapsed, see Filter#normalize
+    public String getNormalized()
+    {
+        if(normalized==null)
+            normalized = Filter.collapse(getFolded());
+        return normalized;
+    }
+
+    // the same as content.split("\n").length
+    public int getLineCount()
+    {
+        if(lineCount<0)
+        {
+            int last = content.length()-1;
+            while(last>=0 && content.charAt(last)=='\n')
+                last--;
+            if(last<0)
+                lineCount = content.isEmpty() ? 1 : 0;
+            else
+            {
+                int count = 1;
+                for(int i=0; i<last; i++)
+                    if(content.charAt(i)=='\n')
+                        count++;
+                lineCount = count;
+            }
+        }
+        return lineCount;
+    }
+
+    public int getCodePointCount()
+    {
+        return codePointStats()[0];
+    }
+
+    public int getLetterCount()
+    {
+        return codePointStats()[1];
+    }
+
+    public int getUpperCaseCount()
+    {
+        return codePointStats()[2];
+    }
+
+    public int getNonAsciiCount()
+    {
+        return codePointStats()[3];
+    }
+
+    public LinkScanner.Result getLinks()
+    {
+        if(links==null)
+            links = LinkScanner.scan(content);
+        return links;
+    }
+
+    // mentioned users, not counting bots or the author
+    // the set is only built for messages that mention someone, once per message, and shared by every rule that asks
+    public Set<Long> getMentionedUsers()
+    {
+        if(mentionedUsers==null)
+        {
+            if(message==null || message.getMentionedUsers().isEmpty())
+                mentionedUsers = Collections.emptySet();
+            else
+            {
+                Set<Long> ids = new HashSet<>();
+                for(User user: message.getMentionedUsers())
+                    if(!user.isBot() && user.getIdLong()!=message.getAuthor().getIdLong())
+                        ids.add(user.getIdLong());
+                mentionedUsers = ids;
+            }
+        }
+        return mentionedUsers;
+    }
+
+    // mentioned roles, built the same way as the mentioned users
+    public Set<Long> getMentionedRoles()
+    {
+        if(mentionedRoles==null)
+        {
+            if(message==null || message.getMentionedRoles().isEmpty())
+                mentionedRoles = Collections.emptySet();
+            else
+            {
+                Set<Long> ids = new HashSet<>();
+                for(Role role: message.getMentionedRoles())
+                    ids.add(role.getIdLong());
+                mentionedRoles = ids;
+            }
+        }
+        return mentionedRoles;
+    }
+
+    // code points, letters, upper case letters, and non-ascii code points, counted in one pass
+    private int[] codePointStats()
+    {
+        if(codePointStats==null)
+        {
+            int[] stats = new int[4];
+            for(int i=0; i<content.length(); )
+            {
+                int cp = content.codePointAt(i);
+                stats[0]++;
+                if(Character.isLetter(cp))
+                    stats[1]++;
+                if(Character.isUpperCase(cp))
+                    stats[2]++;
+                if(cp>127)
+                    stats[3]++;
+                i += Character.charCount(cp);
+            }
+            codePointStats = stats;
+        }
+        return codePointStats;
+    }
+}
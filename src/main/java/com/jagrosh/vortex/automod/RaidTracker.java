@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.LongRecordMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Keeps each guild's raid mode state and recent joins in one primitive record,
+ * and makes every raid mode change inside that record's lock, so turning raid
+ * mode on or off happens exactly once even if several threads try at the same
+ * time. Whoever makes a change is responsible for saving it; nothing needs to
+ * be saved otherwise.
+ *
+ * <p>Recent joins are counted in a ring of {@link #BUCKETS} time buckets that
+ * span the raidmode window, so the join rate is checked in constant time. The
+ * count covers between (BUCKETS-1)/BUCKETS of the window and the whole window.
+ * Windows are capped at a day, and guilds with no activity for a day are
+ * forgotten (and their raid mode state is loaded again when needed).
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class RaidTracker
+{
+    public static final int BUCKETS = 60;
+    public static final long MAX_WINDOW = TimeUnit.DAYS.toMillis(1);
+    public static final long QUIET_TIME = TimeUnit.MINUTES.toMillis(2);
+    private static final long UNKNOWN = 0, OFF = 1, ON = 2;
+    private static final int STATE = 0, LAST_JOIN = 1, WIDTH = 2, HEAD = 3, TOTAL = 4, FIRST_BUCKET = 5;
+
+    private final LongRecordMap records = new LongRecordMap(FIRST_BUCKET+BUCKETS, MAX_WINDOW, 16, 16);
+
+    /**
+     * @param  guildId the guild
+     * @param  loader  reads the saved raid mode state, if it isn't known yet
+     * @return true if the guild is in raid mode
+     */
+    public boolean isInRaidMode(long guildId, BooleanSupplier loader)
+    {
+        return state(guildId, loader, System.currentTimeMillis())==ON;
+    }
+
+    /**
+     * Turns raid mode on
+     *
+     * @param  guildId the guild
+     * @param  loader  reads the saved raid mode state, if it isn't known yet
+     * @return true if this call turned it on, false if it was already on
+     */
+    public boolean enable(long guildId, BooleanSupplier loader)
+    {
+        state(guildId, loader, System.currentTimeMillis());
+        return transition(guildId, OFF, ON);
+    }
+
+    /**
+     * Turns raid mode off
+     *
+     * @param  guildId the guild
+     * @param  loader  reads the saved raid mode state, if it isn't known yet
+     * @return true if this call turned it off, false if it was already off
+     */
+    public boolean disable(long guildId, BooleanSupplier loader)
+    {
+        state(guildId, loader, System.currentTimeMillis());
+        return transition(guildId, ON, OFF);
+    }
+
+    /**
+     * Records a join and decides what to do about it. Raid mode is turned on
+     * when the join rate is exceeded, and turned off when a join comes in after
+     * {@link #QUIET_TIME} without any; both only when auto raid mode is used.
+     *
+     * @param  guildId   the guild
+     * @param  loader    reads the saved raid mode state, if it isn't known yet
+     * @param  time      the join time, in epoch millis
+     * @param  window    the auto raid mode window in millis, or 0 if auto raid mode isn't used
+     * @param  threshold how many joins in the window turn raid mode on
+     * @return what should happen because of the join
+     */
+    public Action join(long guildId, BooleanSupplier loader, long time, long window, int threshold)
+    {
+        state(guildId, loader, time);
+        long result = records.update(guildId, 0L, time, time, Math.min(window, MAX_WINDOW), (data, offset, last, now, win) ->
+        {
+            long lastJoin = data[offset+LAST_JOIN];
+            data[offset+LAST_JOIN] = now;
+            long count = win>0 ? count(data, offset, now, win) : 0;
+            if(data[offset+STATE]==ON)
+            {
+                if(win>0 && lastJoin!=0 && now-lastJoin>QUIET_TIME)
+                {
+                    data[offset+STATE] = OFF;
+                    return Action.DISABLE.ordinal();
+                }
+                return Action.KICK.ordinal();
+            }
+            if(win>0 && count>=threshold)
+            {
+                data[offset+STATE] = ON;
+                return Action.ENABLE.ordinal();
+            }
+            return Action.NONE.ordinal();
+        });
+        return Action.values()[(int)result];
+    }
+
+    public void purge(long now)
+    {
+        records.purge(now);
+    }
+
+    public int size(long now)
+    {
+        return records.size(now);
+    }
+
+    private long state(long guildId, BooleanSupplier loader, long now)
+    {
+        long state = records.get(guildId, 0L, STATE, now, UNKNOWN);
+        if(state!=UNKNOWN)
+            return state;
+        // read outside of the lock, and only kept if nobody else has set the state in the meantime
+        long loaded = loader.getAsBoolean() ? ON : OFF;
+        return records.update(guildId, 0L, now, loaded, 0L, (data, offset, last, value, unused) ->
+        {
+            if(data[offset+STATE]==UNKNOWN)
+                data[offset+STATE] = value;
+            return data[offset+STATE];
+        });
+    }
+
+    private boolean transition(long guildId, long from, long to)
+    {
+        return records.update(guildId, 0L, System.currentTimeMillis(), from, to, (data, offset, last, f, t) ->
+        {
+            if(data[offset+STATE]!=f)
+                return 0;
+            data[offset+STATE] = t;
+            return 1;
+        })==1;
+    }
+
+    // adds a join to the buckets, returning the number of joins in the window
+    private static long count(long[] data, int offset, long time, long window)
+    {
+        long width = (window+BUCKETS-1)/BUCKETS;
+        long index = time/width;
+        if(data[offset+WIDTH]!=width)
+        {
+            // first join, or the window changed; start counting over
+            for(int i=0; i<BUCKETS; i++)
+                data[offset+FIRST_BUCKET+i] = 0;
+            data[offset+WIDTH] = width;
+            data[offset+HEAD] = index;
+            data[offset+TOTAL] = 0;
+        }
+        long head = data[offset+HEAD];
+        if(index>head)
+        {
+            // clear the buckets that slid out of the window
+            long steps = Math.min(index-head, BUCKETS);
+            for(long i=1; i<=steps; i++)
+            {
+                int slot = offset+FIRST_BUCKET+(int)((head+i)%BUCKETS);
+                data[offset+TOTAL] -= data[slot];
+                data[slot] = 0;
+            }
+            data[offset+HEAD] = index;
+            head = index;
+        }
+        // a join that arrives slightly out of order is counted in the current bucket
+        data[offset+FIRST_BUCKET+(int)(head%BUCKETS)]++;
+        return ++data[offset+TOTAL];
+    }
+
+    public enum Action
+    {
+        NONE, KICK, ENABLE, DISABLE
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.LongRecordMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks how much time each guild's regex filters have spent in the current
+ * minute; once a guild runs out, its regex filters are skipped until the next
+ * minute starts. Also counts how often each filter has hit its step limit,
+ * so a filter is only disabled once it keeps doing so across messages, and
+ * how many checks were skipped or cut short and so treated as not matching.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class RegexBudget
+{
+    public static final long NANOS_PER_MINUTE = TimeUnit.MILLISECONDS.toNanos(500);
+    public static final int VIOLATIONS_TO_DISABLE = 3;
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+    private static final long VIOLATION_WINDOW = TimeUnit.HOURS.toMillis(1);
+
+    private final ConcurrentHashMap<Long, Window> windows = new ConcurrentHashMap<>();
+    private final LongRecordMap violations = new LongRecordMap(1, VIOLATION_WINDOW, 16, 16);
+    private final LongAdder unevaluated = new LongAdder();
+
+    public long remaining(long guildId)
+    {
+        Window window = windows.get(guildId);
+        if(window==null)
+            return NANOS_PER_MINUTE;
+        synchronized(window)
+        {
+            window.roll(System.nanoTime());
+            return NANOS_PER_MINUTE-window.used;
+        }
+    }
+
+    public void charge(long guildId, long nanos)
+    {
+        Window window = windows.computeIfAbsent(guildId, id -> new Window());
+        synchronized(window)
+        {
+            window.roll(System.nanoTime());
+            window.used += nanos;
+        }
+    }
+
+    /**
+     * Records that a filter hit its step limit on a message
+     *
+     * @param  guildId   the guild the filter belongs to
+     * @param  filterNum the filter's number
+     * @return how many times the filter has hit its limit within the last hour,
+     *         counting this one
+     */
+    public int violation(long guildId, int filterNum)
+    {
+        return (int)violations.update(guildId, filterNum, System.currentTimeMillis(), 0L, 0L, 
+                (data, offset, last, a, b) -> ++data[offset]);
+    }
+
+    public void unevaluated()
+    {
+        unevaluated.increment();
+    }
+
+    public long getUnevaluated()
+    {
+        return unevaluated.sum();
+    }
+
+    public int getGuildCount()
+    {
+        return windows.size();
+    }
+
+    // drops guilds whose window ended long enough ago that they have their full budget back
+    public void cleanup()
+    {
+        long now = System.nanoTime();
+        windows.values().removeIf(w -> now-w.start > MINUTE);
+        violations.purge(System.currentTimeMillis());
+    }
+
+    private static class Window
+    {
+        private long start = System.nanoTime();
+        private long used = 0;
+
+        private void roll(long now)
+        {
+            if(now-start >= MINUTE)
+            {
+                start = now;
+                used = 0;
+            }
+        }
+    }
+}
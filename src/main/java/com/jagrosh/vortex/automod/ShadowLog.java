@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.automod.rules.AutomodContext;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps what automod would have done in shadow mode: the most recent would-be
+ * actions in a fixed size ring buffer, and the run count, hit count and
+ * evaluation time of each rule that ran in shadow mode.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ShadowLog
+{
+    public static final int CAPACITY = 500;
+
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong written = new AtomicLong();
+    private final ConcurrentHashMap<String,RuleStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Records one shadow evaluation of a rule, and the actions it would have
+     * taken (if any)
+     *
+     * @param rule    the rule's name
+     * @param context the shadow context the rule ran with
+     * @param nanos   how long the rule took
+     */
+    public void record(String rule, AutomodContext context, long nanos)
+    {
+        RuleStats rs = stats.computeIfAbsent(rule, r -> new RuleStats());
+        rs.runs.increment();
+        rs.nanos.add(nanos);
+        rs.max.accumulate(nanos);
+        if(context.getChanges()==0)
+            return;
+        rs.hits.increment();
+        StringBuilder sb = new StringBuilder();
+        if(context.shouldDelete())
+            sb.append(", delete");
+        if(context.getStrikes()>0)
+            sb.append(", ").append(context.getStrikes()).append(" strikes (").append(context.getReason()).append(")");
+        if(context.getChannelWarning()!=null)
+            sb.append(", warn \"").append(context.getChannelWarning()).append("\"");
+        add(rule, context, sb.length()==0 ? "no action" : sb.substring(2), nanos);
+    }
+
+    /**
+     * Records an action that a rule would have taken later on, like after a
+     * lookup finished
+     *
+     * @param rule    the rule's name
+     * @param context the shadow context the rule ran with
+     * @param action  what the rule would have done
+     * @param nanos   how long the rule took, if known
+     */
+    public void add(String rule, AutomodContext context, String action, long nanos)
+    {
+        Entry entry = new Entry(System.currentTimeMillis(), context.message.getGuild().getIdLong(),
+                context.message.getTextChannel().getIdLong(), context.message.getAuthor().getIdLong(),
+                context.message.getIdLong(), rule, action, nanos);
+        entries.set((int)(written.getAndIncrement()%CAPACITY), entry);
+    }
+
+    /**
+     * @param  limit   the most entries to return
+     * @param  guildId the guild to get entries for, or 0 for every guild
+     * @return the most recent entries, newest first
+     */
+    public List<Entry> getRecent(int limit, long guildId)
+    {
+        List<Entry> list = new ArrayList<>();
+        long end = written.get();
+        for(long i=end-1; i>=Math.max(0, end-CAPACITY) && list.size()<limit; i--)
+        {
+            Entry entry = entries.get((int)(i%CAPACITY));
+            if(entry!=null && (guildId==0 || entry.guildId==guildId))
+                list.add(entry);
+        }
+        return list;
+    }
+
+    // per-rule shadow stats, sorted by rule name
+    public Map<String,RuleStats> getStats()
+    {
+        return Collections.unmodifiableMap(new TreeMap<>(stats));
+    }
+
+    public void clear()
+    {
+        stats.clear();
+        for(int i=0; i<CAPACITY; i++)
+            entries.set(i, null);
+    }
+
+    public static class Entry
+    {
+        public final long time;
+        public final long guildId;
+        public final long channelId;
+        public final long userId;
+        public final long messageId;
+        public final String rule;
+        public final String action;
+        public final long nanos;
+
+        private Entry(long time, long guildId, long channelId, long userId, long messageId, String rule, String action, long nanos)
+        {
+            this.time = time;
+            this.guildId = guildId;
+            this.channelId = channelId;
+            this.userId = userId;
+            this.messageId = messageId;
+            this.rule = rule;
+            this.action = action;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "`"+Instant.ofEpochMilli(time)+"` **"+rule+"** ("+nanos/1000+"us) <@"+userId+"> in <#"+channelId+">: "+action;
+        }
+    }
+
+    public static class RuleStats
+    {
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+        public long getRuns()
+        {
+            return runs.sum();
+        }
+
+        public long getHits()
+        {
+            return hits.sum();
+        }
+
+        public long getNanos()
+        {
+            return nanos.sum();
+        }
+
+        public long getMaxNanos()
+        {
+            return max.get();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Follows the redirects of a link with HEAD requests, on its own small pool
+ * of threads. Only a few requests run at once, and only a couple of those can
+ * go to the same host (hosts are spread over a fixed set of semaphores, so
+ * the limit is shared by hosts that land on the same one). Every hop has its
+ * own timeout, and tracing stops after {@link #MAX_HOPS} hops or at a safe
+ * domain. Finished chains go in an LRU cache, and lookups for a link that is
+ * already being traced wait for that trace instead of starting another.
+ * <p>
+ * Links are posted by anyone, so before every hop (the link itself and each
+ * redirect) the host is looked up, and tracing stops if any of its addresses
+ * is private, loopback, link-local (like the cloud metadata address) or
+ * otherwise not on the public internet. The request right after reuses the
+ * lookup from the JVM's DNS cache.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class URLResolver
+{
+    public static final int MAX_HOPS = 5;
+    public static final int HOP_TIMEOUT = 3000; // millis
+    public static final long TTL = TimeUnit.HOURS.toMillis(1);
+    public static final long PARTIAL_TTL = TimeUnit.MINUTES.toMillis(5);
+    private static final int THREADS = 8;
+    private static final int QUEUE = 500;
+    private static final int HOST_STRIPES = 64;
+    private static final int PER_HOST = 2;
+    private static final int CACHE_SIZE = 5000;
+    private static final String USER_AGENT = "Mozilla/5.0 (compatible; Vortex)";
+
+    private final DomainClassifier domainClassifier;
+    private final Predicate<InetAddress> refused;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore[] hosts = new Semaphore[HOST_STRIPES];
+    private final Map<String,Chain> cache = new LinkedHashMap<String,Chain>(CACHE_SIZE, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,Chain> eldest)
+        {
+            return size()>CACHE_SIZE;
+        }
+    };
+    private final ConcurrentHashMap<String,CompletableFuture<List<String>>> pending = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+
+    public URLResolver(DomainClassifier domainClassifier)
+    {
+        this(domainClassifier, URLResolver::isInternal);
+    }
+
+    // the tests trace links on the loopback address
+    URLResolver(DomainClassifier domainClassifier, Predicate<InetAddress> refused)
+    {
+        this.domainClassifier = domainClassifier;
+        this.refused = refused;
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, 30L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE), r ->
+        {
+            Thread t = new Thread(r, "url-resolver");
+            t.setDaemon(true);
+            return t;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+        for(int i=0; i<HOST_STRIPES; i++)
+            hosts[i] = new Semaphore(PER_HOST);
+    }
+
+    /**
+     * Follows a link's redirects in the background
+     *
+     * @param  url the link
+     * @return a future with every url the link redirected to, in order, not
+     *         including the link itself; this never completes exceptionally,
+     *         and if tracing fails it has the redirects found up to that point
+     */
+    public CompletableFuture<List<String>> resolve(String url)
+    {
+        List<String> cached = getCached(url);
+        if(cached!=null)
+        {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<List<String>> future = new CompletableFuture<>();
+        CompletableFuture<List<String>> existing = pending.putIfAbsent(url, future);
+        if(existing!=null)
+        {
+            coalesced.increment();
+            return existing;
+        }
+        misses.increment();
+        try
+        {
+            executor.execute(() ->
+            {
+                List<String> chain = Collections.emptyList();
+                try
+                {
+                    chain = trace(url);
+                }
+                finally
+                {
+                    pending.remove(url);
+                    future.complete(chain);
+                }
+            });
+        }
+        catch(RejectedExecutionException ex)
+        {
+            dropped.increment();
+            pending.remove(url);
+            future.complete(Collections.emptyList());
+        }
+        return future;
+    }
+
+    /**
+     * Follows a link's redirects, waiting for the result
+     *
+     * @param  url the link
+     * @return every url the link redirected to, in order
+     */
+    public List<String> findRedirects(String url)
+    {
+        return resolve(url).join();
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    // lookups that waited for a trace that was already running
+    public long getCoalesced()
+    {
+        return coalesced.sum();
+    }
+
+    // lookups that were skipped because too many were waiting
+    public long getDropped()
+    {
+        return dropped.sum();
+    }
+
+    public long getRequests()
+    {
+        return requests.sum();
+    }
+
+    public int getQueued()
+    {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    private List<String> getCached(String url)
+    {
+        synchronized(cache)
+        {
+            Chain chain = cache.get(url);
+            if(chain==null)
+                return null;
+            if(System.currentTimeMillis()>=chain.expires)
+            {
+                cache.remove(url);
+                return null;
+            }
+            return chain.urls;
+        }
+    }
+
+    private List<String> trace(String url)
+    {
+        List<String> chain = new ArrayList<>();
+        boolean complete = false;
+        try
+        {
+            URL current = new URL(url);
+            for(int hop=0; hop<MAX_HOPS; hop++)
+            {
+                String protocol = current.getProtocol();
+                if(!protocol.equals("http") && !protocol.equals("https"))
+                    break;
+                // there's no need to look any further than a safe domain
+                if(domainClassifier.isSafe(current.getHost()))
+                {
+                    complete = true;
+                    break;
+                }
+                // never make requests into our own network, whether the link or a redirect points there
+                if(isRefused(current.getHost()))
+                {
+                    complete = true;
+                    break;
+                }
+                String location = nextHop(current);
+                if(location==null)
+                {
+                    complete = true;
+                    break;
+                }
+                URL next = new URL(current, location);
+                String nextUrl = next.toString();
+                // stop at loops
+                if(nextUrl.equals(url) || chain.contains(nextUrl))
+                {
+                    complete = true;
+                    break;
+                }
+                chain.add(nextUrl);
+                current = next;
+            }
+        }
+        catch(InterruptedException ex)
+        {
+            // the pool is shutting down, so keep the interrupt and don't cache a cut-off chain
+            Thread.currentThread().interrupt();
+            return Collections.unmodifiableList(chain);
+        }
+        catch(IOException | RuntimeException ex) {}
+        List<String> result = Collections.unmodifiableList(chain);
+        synchronized(cache)
+        {
+            cache.put(url, new Chain(result, System.currentTimeMillis() + (complete ? TTL : PARTIAL_TTL)));
+        }
+        return result;
+    }
+
+    private boolean isRefused(String host) throws IOException
+    {
+        for(InetAddress address: InetAddress.getAllByName(host))
+            if(refused.test(address))
+                return true;
+        return false;
+    }
+
+    // addresses that aren't on the public internet
+    static boolean isInternal(InetAddress address)
+    {
+        if(address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress() 
+                || address.isSiteLocalAddress() || address.isMulticastAddress())
+            return true;
+        byte[] bytes = address.getAddress();
+        if(address instanceof Inet6Address)
+        {
+            // unique local (fc00::/7), and IPv4 addresses written as IPv6 (::a.b.c.d)
+            if((bytes[0] & 0xFE)==0xFC)
+                return true;
+            if(!((Inet6Address)address).isIPv4CompatibleAddress())
+                return false;
+            bytes = Arrays.copyOfRange(bytes, 12, 16);
+            try
+            {
+                return isInternal(InetAddress.getByAddress(bytes));
+            }
+            catch(IOException ex)
+            {
+                return true;
+            }
+        }
+        // "this" network (0.0.0.0/8) and carrier-grade NAT (100.64.0.0/10)
+        return bytes[0]==0 || (bytes[0]==100 && (bytes[1] & 0xC0)==64);
+    }
+
+    // makes one request, returning where it redirects to, or null if it doesn't
+    private String nextHop(URL url) throws IOException, InterruptedException
+    {
+        Semaphore host = hosts[(url.getHost().toLowerCase().hashCode() & 0x7fffffff) % HOST_STRIPES];
+        if(!host.tryAcquire(HOP_TIMEOUT, TimeUnit.MILLISECONDS))
+            throw new IOException("Too many requests to "+url.getHost());
+        HttpURLConnection conn = null;
+        try
+        {
+            conn = open(url, "HEAD");
+            int status = conn.getResponseCode();
+            // some servers don't allow HEAD requests, so try those again with a GET, ignoring the body
+            if(status==HttpURLConnection.HTTP_BAD_METHOD || status==HttpURLConnection.HTTP_NOT_IMPLEMENTED)
+            {
+                conn.disconnect();
+                conn = open(url, "GET");
+                status = conn.getResponseCode();
+            }
+            return status>=300 && status<400 ? conn.getHeaderField("Location") : null;
+        }
+        finally
+        {
+            if(conn!=null)
+                conn.disconnect();
+            host.release();
+        }
+    }
+
+    private HttpURLConnection open(URL url, String method) throws IOException
+    {
+        requests.increment();
+        HttpURLConnection conn = (HttpURLConnection)url.openConnection();
+        conn.setInstanceFollowRedirects(false);
+        conn.setConnectTimeout(HOP_TIMEOUT);
+        conn.setReadTimeout(HOP_TIMEOUT);
+        conn.setRequestMethod(method);
+        conn.setRequestProperty("User-Agent", USER_AGENT);
+        return conn;
+    }
+
+    private static class Chain
+    {
+        private final List<String> urls;
+        private final long expires;
+
+        private Chain(List<String> urls, long expires)
+        {
+            this.urls = urls;
+            this.expires = expires;
+        }
+    }
+}
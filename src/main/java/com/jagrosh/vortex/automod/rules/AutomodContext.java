@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+import com.jagrosh.vortex.automod.ChannelFlags;
+import com.jagrosh.vortex.automod.MessageView;
+import com.jagrosh.vortex.automod.ShadowLog;
+import com.jagrosh.vortex.database.managers.AutomodManager.AutomodSettings;
+import com.jagrosh.vortex.database.managers.PunishmentManager;
+import java.time.OffsetDateTime;
+import net.dv8tion.jda.core.entities.Message;
+
+/**
+ * One message going through the automod rules, along with what the rules
+ * have decided so far.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class AutomodContext
+{
+    public final Message message;
+    public final MessageView view;
+    public final AutomodSettings settings;
+    public final boolean preventSpam;
+    public final boolean preventInvites;
+    private final ShadowLog shadowLog;
+
+    private boolean delete = false;
+    private String channelWarning = null;
+    private int strikes = 0;
+    private boolean repeatStrike = false;
+    private final StringBuilder reason = new StringBuilder();
+    private int changes = 0;
+
+    public AutomodContext(Message message, AutomodSettings settings, int channelFlags)
+    {
+        this.message = message;
+        this.view = new MessageView(message);
+        this.settings = settings;
+        this.preventSpam = (channelFlags & ChannelFlags.SPAM_ALLOWED)==0;
+        this.preventInvites = (channelFlags & ChannelFlags.INVITES_ALLOWED)==0;
+        this.shadowLog = null;
+    }
+
+    private AutomodContext(AutomodContext original, ShadowLog shadowLog)
+    {
+        this.message = original.message;
+        this.view = original.view;
+        this.settings = original.settings;
+        this.preventSpam = original.preventSpam;
+        this.preventInvites = original.preventInvites;
+        this.shadowLog = shadowLog;
+    }
+
+    /**
+     * Makes a context for the same message that starts with nothing decided,
+     * for running a rule in shadow mode
+     *
+     * @param  shadowLog where the rule's would-be actions go
+     * @return the shadow context
+     */
+    public AutomodContext shadow(ShadowLog shadowLog)
+    {
+        return new AutomodContext(this, shadowLog);
+    }
+
+    // in shadow mode, rules must not act on their own (deleting other messages, applying strikes later, etc)
+    public boolean isShadow()
+    {
+        return shadowLog!=null;
+    }
+
+    // records something a rule would have done outside of this context, in shadow mode
+    public void logShadow(String rule, String action)
+    {
+        shadowLog.add(rule, this, action, 0);
+    }
+
+    public OffsetDateTime getTime()
+    {
+        return message.isEdited() ? message.getEditedTime() : message.getCreationTime();
+    }
+
+    public void delete()
+    {
+        if(!delete)
+        {
+            delete = true;
+            changes++;
+        }
+    }
+
+    public void strike(int number, String reason)
+    {
+        if(number<=0)
+            return;
+        strikes += number;
+        this.reason.append(", ").append(reason);
+        changes++;
+    }
+
+    // the duplicate and cross-channel rules both catch repeats of this message, so only the first of them strikes
+    public void strikeRepeat(int number, String reason)
+    {
+        if(repeatStrike)
+            return;
+        repeatStrike = true;
+        strike(number, reason);
+    }
+
+    public void warnChannel(String warning)
+    {
+        channelWarning = warning;
+        changes++;
+    }
+
+    public boolean shouldDelete()
+    {
+        return delete;
+    }
+
+    public String getChannelWarning()
+    {
+        return channelWarning;
+    }
+
+    public int getStrikes()
+    {
+        return strikes;
+    }
+
+    public String getReason()
+    {
+        return reason.length()==0 ? "" : reason.substring(2);
+    }
+
+    public int getChanges()
+    {
+        return changes;
+    }
+
+    // once the message is being deleted and has enough strikes for any punishment, nothing else matters
+    public boolean isSettled()
+    {
+        return delete && strikes>=PunishmentManager.MAX_STRIKES;
+    }
+}
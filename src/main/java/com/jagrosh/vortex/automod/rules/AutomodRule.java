@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A single automod check. AutoMod runs its rules from cheapest to most
+ * expensive, skips rules whose features aren't in the message, and stops
+ * once the outcome can't change anymore; stateful rules still run after that
+ * so that what they track stays accurate.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public abstract class AutomodRule
+{
+    private final String name;
+    private final Cost cost;
+    private final Set<Feature> features;
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private volatile boolean shadow = false;
+
+    protected AutomodRule(String name, Cost cost, Feature... features)
+    {
+        this.name = name;
+        this.cost = cost;
+        this.features = features.length==0 ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.of(features[0], features));
+    }
+
+    /**
+     * Checks the guild's settings and channel flags; disabled rules aren't timed
+     *
+     * @param  context the message being checked
+     * @return true if this rule should look at the message
+     */
+    public abstract boolean isEnabled(AutomodContext context);
+
+    /**
+     * Checks the message, adding anything it finds to the context
+     *
+     * @param  context the message being checked
+     */
+    public abstract void apply(AutomodContext context);
+
+    // stateful rules keep running after the outcome is settled
+    public boolean isStateful()
+    {
+        return false;
+    }
+
+    // whether the message has everything this rule looks at
+    public final boolean hasFeatures(AutomodContext context)
+    {
+        for(Feature feature: features)
+            if(!feature.isPresent(context))
+                return false;
+        return true;
+    }
+
+    public final String getName()
+    {
+        return name;
+    }
+
+    public final Cost getCost()
+    {
+        return cost;
+    }
+
+    public final Set<Feature> getFeatures()
+    {
+        return features;
+    }
+
+    // shadowed rules run everywhere, but only record what they would have done
+    public final boolean isShadow()
+    {
+        return shadow;
+    }
+
+    public final void setShadow(boolean shadow)
+    {
+        this.shadow = shadow;
+    }
+
+    public final long getRuns()
+    {
+        return runs.sum();
+    }
+
+    public final long getHits()
+    {
+        return hits.sum();
+    }
+
+    public final long getNanos()
+    {
+        return nanos.sum();
+    }
+
+    public final void record(long elapsed, boolean hit)
+    {
+        runs.increment();
+        nanos.add(elapsed);
+        if(hit)
+            hits.increment();
+    }
+
+    public enum Cost
+    {
+        CHEAP, MODERATE, EXPENSIVE
+    }
+
+    public enum Feature
+    {
+        CONTENT, LINKS, MENTIONS;
+
+        public boolean isPresent(AutomodContext context)
+        {
+            switch(this)
+            {
+                case CONTENT:
+                    return !context.view.getContent().isEmpty() || !context.message.getAttachments().isEmpty();
+                case LINKS:
+                    return !context.view.getLinks().isEmpty();
+                case MENTIONS:
+                    return context.view.getContent().contains("<@");
+                default:
+                    return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+import com.jagrosh.vortex.automod.CampaignDetector;
+import com.jagrosh.vortex.automod.LinkScanner;
+import com.jagrosh.vortex.utils.Condenser;
+import com.jagrosh.vortex.utils.Fingerprint;
+
+/**
+ * Feeds every message's content and invites to the {@link CampaignDetector},
+ * in every guild, and strikes messages that are going around many guilds in
+ * the guilds that opted in. This always runs, so the counts stay accurate.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CampaignRule extends AutomodRule
+{
+    private static final long INVITE_SEED = Fingerprint.of("discord.gg/");
+
+    private final CampaignDetector campaigns;
+
+    public CampaignRule(CampaignDetector campaigns)
+    {
+        super("Campaigns", Cost.MODERATE);
+        this.campaigns = campaigns;
+    }
+
+    @Override
+    public boolean isEnabled(AutomodContext context)
+    {
+        return true;
+    }
+
+    @Override
+    public boolean isStateful()
+    {
+        return true;
+    }
+
+    @Override
+    public void apply(AutomodContext context)
+    {
+        long guildId = context.message.getGuild().getIdLong();
+        boolean trending = false;
+
+        // short messages are posted everywhere all the time, so they don't count
+        String normalized = context.view.getNormalized();
+        if(normalized.length()>=CampaignDetector.MIN_LENGTH)
+            trending = campaigns.observe(guildId, Condenser.fingerprint(normalized), normalized)>=CampaignDetector.TRENDING 
+                    && context.preventSpam;
+
+        for(String code: context.view.getLinks().get(LinkScanner.Type.INVITE))
+            if(campaigns.observe(guildId, Fingerprint.append(INVITE_SEED, code), "discord.gg/"+code)>=CampaignDetector.TRENDING 
+                    && context.preventInvites)
+                trending = true;
+
+        if(trending && context.settings.campaignStrikes>0)
+        {
+            context.delete();
+            context.strike(context.settings.campaignStrikes, "Spam campaign");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+import com.jagrosh.vortex.automod.CopypastaResolver;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CopypastaRule extends AutomodRule
+{
+    private final CopypastaResolver copypastaResolver;
+
+    public CopypastaRule(CopypastaResolver copypastaResolver)
+    {
+        super("Copypastas", Cost.MODERATE, Feature.CONTENT);
+        this.copypastaResolver = copypastaResolver;
+    }
+
+    @Override
+    public boolean isEnabled(AutomodContext context)
+    {
+        return context.settings.copypastaStrikes>0 && context.preventSpam;
+    }
+
+    @Override
+    public void apply(AutomodContext context)
+    {
+        String copypastaName = copypastaResolver.getCopypasta(context.view);
+        if(copypastaName!=null)
+        {
+            context.strike(context.settings.copypastaStrikes, copypastaName+" copypasta");
+            context.delete();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.automod.CrossChannelTracker;
+import com.jagrosh.vortex.automod.DeletionCoalescer;
+import com.jagrosh.vortex.utils.SimHash;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import net.dv8tion.jda.core.entities.Message;
+
+/**
+ * Catches the same (or nearly the same) message being posted across several
+ * channels, using the anti-duplicate thresholds. Like {@link DuplicateRule},
+ * this always runs so that the tracked messages stay accurate. A message both
+ * rules catch only gets the duplicate strikes once.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CrossChannelRule extends AutomodRule
+{
+    public static final int MIN_CHANNELS = 3;
+    
+    private final Vortex vortex;
+    private final CrossChannelTracker tracker;
+    private final DeletionCoalescer deletions;
+
+    public CrossChannelRule(Vortex vortex, CrossChannelTracker tracker, DeletionCoalescer deletions)
+    {
+        super("Cross-Channel", Cost.MODERATE, Feature.CONTENT);
+        this.vortex = vortex;
+        this.tracker = tracker;
+        this.deletions = deletions;
+    }
+
+    @Override
+    public boolean isEnabled(AutomodContext context)
+    {
+        return context.settings.useAntiDuplicate() && context.preventSpam;
+    }
+
+    @Override
+    public boolean isStateful()
+    {
+        return true;
+    }
+
+    @Override
+    public void apply(AutomodContext context)
+    {
+        Message message = context.message;
+        long hash = SimHash.of(text(message));
+        if(hash==0L)
+            return;
+        OffsetDateTime now = context.getTime();
+        long result = tracker.update(message.getGuild().getIdLong(), message.getAuthor().getIdLong(), 
+                message.getTextChannel().getIdLong(), hash, now.toInstant().toEpochMilli());
+        if(CrossChannelTracker.channels(result)<MIN_CHANNELS)
+            return;
+        
+        // the ring only holds so many copies, so higher thresholds are capped to it
+        int copies = CrossChannelTracker.copies(result);
+        int deleteThresh = Math.min(context.settings.dupeDeleteThresh, CrossChannelTracker.RING);
+        if(copies>=deleteThresh)
+        {
+            context.delete();
+            context.warnChannel("Please stop posting the same message in multiple channels.");
+        }
+        if(copies==deleteThresh)
+        {
+            // clean up the copies that were already posted in other channels
+            List<Message> recent = vortex.getMessageCache().getMessages(message.getGuild(), 
+                    m -> m.getAuthor().getIdLong()==message.getAuthor().getIdLong() 
+                            && m.getCreationTime().plus(CrossChannelTracker.WINDOW, ChronoUnit.MILLIS).isAfter(now) 
+                            && CrossChannelTracker.isCopy(hash, SimHash.of(text(m))));
+            if(context.isShadow())
+                context.logShadow(getName(), "delete "+recent.size()+" recent copies");
+            else
+                recent.forEach(m -> deletions.delete(m));
+        }
+        
+        if(copies>=Math.min(context.settings.dupeStrikeThresh, CrossChannelTracker.RING))
+            context.strikeRepeat(context.settings.dupeStrikes, "Cross-channel spam");
+    }
+
+    private static String text(Message m)
+    {
+        StringBuilder sb = new StringBuilder(m.getContentRaw());
+        m.getAttachments().forEach(at -> sb.append("\n").append(at.getFileName()));
+        return sb.toString();
+    }
+}
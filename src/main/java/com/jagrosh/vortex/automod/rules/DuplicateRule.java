@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.automod.DeletionCoalescer;
+import com.jagrosh.vortex.automod.DupeTracker;
+import com.jagrosh.vortex.utils.Condenser;
+import java.time.OffsetDateTime;
+import java.util.List;
+import net.dv8tion.jda.core.entities.Message;
+
+/**
+ * Counts repeats of the same (condensed) message; this always runs, even when
+ * the outcome is already decided, so that the repeat counts stay accurate.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class DuplicateRule extends AutomodRule
+{
+    private final Vortex vortex;
+    private final DupeTracker dupes;
+    private final DeletionCoalescer deletions;
+
+    public DuplicateRule(Vortex vortex, DupeTracker dupes, DeletionCoalescer deletions)
+    {
+        super("Duplicates", Cost.MODERATE, Feature.CONTENT);
+        this.vortex = vortex;
+        this.dupes = dupes;
+        this.deletions = deletions;
+    }
+
+    @Override
+    public boolean isEnabled(AutomodContext context)
+    {
+        return context.settings.useAntiDuplicate() && context.preventSpam;
+    }
+
+    @Override
+    public boolean isStateful()
+    {
+        return true;
+    }
+
+    @Override
+    public void apply(AutomodContext context)
+    {
+        Message message = context.message;
+        OffsetDateTime now = context.getTime();
+        int offenses = dupes.update(message.getGuild().getIdLong(), message.getAuthor().getIdLong(), 
+                condensedFingerprint(message), now.toInstant().toEpochMilli());
+
+        if(offenses==context.settings.dupeDeleteThresh)
+        {
+            context.warnChannel("Please stop spamming.");
+            List<Message> recent = vortex.getMessageCache().getMessages(message.getGuild(), 
+                    m -> m.getAuthor().getIdLong()==message.getAuthor().getIdLong() && m.getCreationTime().plusMinutes(2).isAfter(now));
+            if(context.isShadow())
+                context.logShadow(getName(), "delete "+recent.size()+" recent messages");
+            else
+                recent.forEach(m -> deletions.delete(m));
+        }
+        else if(offenses>context.settings.dupeDeleteThresh)
+            context.delete();
+
+        if(offenses >= context.settings.dupeStrikeThresh)
+            context.strikeRepeat(context.settings.dupeStrikes, "Duplicate messages");
+    }
+
+    private static long condensedFingerprint(Message m)
+    {
+        StringBuilder sb = new StringBuilder(m.getContentRaw());
+        m.getAttachments().forEach(at -> sb.append("\n").append(at.getFileName()));
+        return Condenser.fingerprint(sb.toString().trim());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.automod.Filter;
+import com.jagrosh.vortex.automod.FilterMatcher;
+import com.jagrosh.vortex.automod.RegexBudget;
+import java.time.OffsetDateTime;
+import net.dv8tion.jda.core.entities.Guild;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class FilterRule extends AutomodRule
+{
+    private static final Logger LOG = LoggerFactory.getLogger("AutoMod");
+    
+    private final Vortex vortex;
+    private final RegexBudget regexBudget;
+
+    public FilterRule(Vortex vortex, RegexBudget regexBudget)
+    {
+        super("Filters", Cost.EXPENSIVE, Feature.CONTENT);
+        this.vortex = vortex;
+        this.regexBudget = regexBudget;
+    }
+
+    @Override
+    public boolean isEnabled(AutomodContext context)
+    {
+        return vortex.getDatabase().filters.hasFilters(context.message.getGuild());
+    }
+
+    @Override
+    public void apply(AutomodContext context)
+    {
+        Guild guild = context.message.getGuild();
+        Filter filter = vortex.getDatabase().filters.getMatcher(guild).match(context.view, regexGuard(context));
+        if(filter!=null)
+        {
+            context.strike(filter.strikes, "Filter "+filter.num);
+            context.delete();
+        }
+    }
+
+    // charges regex time to the guild's budget, and disables filters that keep hitting their step limit
+    // timeouts can come from a busy or paused jvm, so only the step limit counts against the filter
+    // in shadow mode the filter is left enabled and the disable is only logged
+    private FilterMatcher.RegexGuard regexGuard(AutomodContext context)
+    {
+        Guild guild = context.message.getGuild();
+        boolean shadow = context.isShadow();
+        return new FilterMatcher.RegexGuard()
+        {
+            @Override
+            public long remainingNanos()
+            {
+                return regexBudget.remaining(guild.getIdLong());
+            }
+
+            @Override
+            public void charge(long nanos)
+            {
+                regexBudget.charge(guild.getIdLong(), nanos);
+            }
+
+            @Override
+            public void violation(Filter.RegexFilter filter, boolean stepLimit)
+            {
+                regexBudget.unevaluated();
+                if(!stepLimit)
+                    return;
+                int count = regexBudget.violation(guild.getIdLong(), filter.num);
+                if(count<RegexBudget.VIOLATIONS_TO_DISABLE)
+                {
+                    LOG.info("Regex filter "+filter.num+" in guild "+guild.getId()+" hit its step limit ("+count+"/"+RegexBudget.VIOLATIONS_TO_DISABLE+")");
+                    return;
+                }
+                if(shadow)
+                {
+                    context.logShadow(getName(), "disable regex filter "+filter.num+" (step limit hit "+count+" times)");
+                    return;
+                }
+                LOG.warn("Disabling regex filter "+filter.num+" in guild "+guild.getId()+" for repeatedly exceeding its step limit");
+                if(vortex.getDatabase().filters.disableFilter(guild, filter.num))
+                    vortex.getModLogger().postFilterDisabledCase(guild.getSelfMember(), OffsetDateTime.now(), filter.num, 
+                            "Regex took too long to evaluate; it can be replaced with a simpler one");
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+import com.jagrosh.vortex.automod.FloodTracker;
+import net.dv8tion.jda.core.entities.Message;
+
+/**
+ * Limits how many messages a member can send in an interval, no matter what
+ * they say. Messages over the limit are deleted, and the first one of each
+ * flood gets a warning and strikes (if any are set). This always runs, so that
+ * every new message takes from the member's bucket; edits don't, since editing
+ * a message doesn't send another one.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class FloodRule extends AutomodRule
+{
+    private final FloodTracker floods;
+
+    public FloodRule(FloodTracker floods)
+    {
+        super("Flood", Cost.CHEAP);
+        this.floods = floods;
+    }
+
+    @Override
+    public boolean isEnabled(AutomodContext context)
+    {
+        return context.settings.useAntiFlood() && context.preventSpam && !context.message.isEdited();
+    }
+
+    @Override
+    public boolean isStateful()
+    {
+        return true;
+    }
+
+    @Override
+    public void apply(AutomodContext context)
+    {
+        Message message = context.message;
+        int over = floods.take(message.getGuild().getIdLong(), message.getAuthor().getIdLong(), context.settings.floodMessages, 
+                context.settings.floodSeconds*1000L, context.getTime().toInstant().toEpochMilli());
+        if(over==0)
+            return;
+        context.delete();
+        if(over==1)
+        {
+            context.warnChannel("Please slow down.");
+            if(context.settings.floodStrikes>0)
+                context.strike(context.settings.floodStrikes, "Flooding");
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.automod.DeletionCoalescer;
+import com.jagrosh.vortex.automod.InviteResolver;
+import com.jagrosh.vortex.automod.LinkScanner;
+import com.jagrosh.vortex.utils.GuildLaneExecutor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import net.dv8tion.jda.core.entities.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Looks up every invite in the message. Invites that are already known are
+ * decided right away; if any have to be looked up, the message is deleted
+ * without waiting, and strikes are given once the lookups finish. If every
+ * invite turns out to be for this guild, the deletion is taken back; that
+ * only works while it's still waiting in the {@link DeletionCoalescer}, so a
+ * lookup slower than {@link DeletionCoalescer#DELAY} leaves the message
+ * deleted.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class InviteRule extends AutomodRule
+{
+    private static final Logger LOG = LoggerFactory.getLogger("AutoMod");
+    
+    private final Vortex vortex;
+    private final InviteResolver inviteResolver;
+    private final DeletionCoalescer deletions;
+    private final GuildLaneExecutor lanes;
+
+    public InviteRule(Vortex vortex, InviteResolver inviteResolver, DeletionCoalescer deletions, GuildLaneExecutor lanes)
+    {
+        super("Invites", Cost.EXPENSIVE, Feature.LINKS);
+        this.vortex = vortex;
+        this.inviteResolver = inviteResolver;
+        this.deletions = deletions;
+        this.lanes = lanes;
+    }
+
+    @Override
+    public boolean isEnabled(AutomodContext context)
+    {
+        return context.settings.inviteStrikes>0 && context.preventInvites;
+    }
+
+    @Override
+    public void apply(AutomodContext context)
+    {
+        Message message = context.message;
+        long guildId = message.getGuild().getIdLong();
+        List<CompletableFuture<Long>> lookups = new ArrayList<>();
+        for(String inviteCode: context.view.getLinks().get(LinkScanner.Type.INVITE))
+        {
+            CompletableFuture<Long> lookup = inviteResolver.resolve(message.getJDA(), inviteCode);
+            if(!lookup.isDone())
+                lookups.add(lookup);
+            else if(!lookup.isCompletedExceptionally() && lookup.join()!=guildId)
+            {
+                context.strike(context.settings.inviteStrikes, "Advertising");
+                context.delete();
+                return;
+            }
+        }
+        if(lookups.isEmpty())
+            return;
+        
+        boolean optimistic = !context.shouldDelete();
+        context.delete();
+        int strikes = context.settings.inviteStrikes;
+        CompletableFuture.allOf(lookups.toArray(new CompletableFuture[lookups.size()])).whenComplete((v, ex) -> 
+        {
+            // finish on the guild's lane, so this always happens after the message's deletion has been queued
+            Runnable finish = () -> finish(context, lookups, optimistic, strikes);
+            if(!lanes.execute(guildId, finish))
+                vortex.getThreadpool().execute(finish);
+        });
+    }
+
+    private void finish(AutomodContext context, List<CompletableFuture<Long>> lookups, boolean optimistic, int strikes)
+    {
+        Message message = context.message;
+        boolean advertising = false;
+        boolean failed = false;
+        for(CompletableFuture<Long> lookup: lookups)
+        {
+            if(lookup.isCompletedExceptionally())
+                failed = true;
+            else if(lookup.join()!=message.getGuild().getIdLong())
+                advertising = true;
+        }
+        if(context.isShadow())
+        {
+            if(advertising)
+                context.logShadow(getName(), strikes+" strikes (Advertising)");
+            else if(optimistic && !failed)
+                context.logShadow(getName(), "take back the deletion");
+        }
+        else if(advertising)
+            vortex.getStrikeHandler().applyStrikes(message.getGuild().getSelfMember(), 
+                    context.getTime(), message.getAuthor(), strikes, "Advertising");
+        else if(optimistic && !failed && !deletions.cancel(message))
+            LOG.debug("Invites in message "+message.getId()+" were for guild "+message.getGuild().getId()+", but its deletion was already sent");
+    }
+}
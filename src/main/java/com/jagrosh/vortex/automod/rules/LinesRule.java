@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class LinesRule extends AutomodRule
+{
+    public LinesRule()
+    {
+        super("Max Lines", Cost.CHEAP, Feature.CONTENT);
+    }
+
+    @Override
+    public boolean isEnabled(AutomodContext context)
+    {
+        return context.settings.maxLines>0 && context.preventSpam;
+    }
+
+    @Override
+    public void apply(AutomodContext context)
+    {
+        int count = context.view.getLineCount();
+        if(count > context.settings.maxLines)
+        {
+            context.strike((int)Math.ceil((double)(count-context.settings.maxLines)/context.settings.maxLines), 
+                    "Message contained "+count+" newlines");
+            context.delete();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+import com.jagrosh.vortex.automod.MentionTracker;
+import com.jagrosh.vortex.database.managers.AutomodManager;
+
+/**
+ * Limits the different users mentioned in a single message, and over the
+ * last minute so mentions can't be split across messages. Strikes for the
+ * window are only given for the mentions each message adds past the limit.
+ * This always runs, so that mentions in messages deleted for other reasons
+ * still count toward the window.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class MentionRule extends AutomodRule
+{
+    private final MentionTracker mentions;
+
+    public MentionRule(MentionTracker mentions)
+    {
+        super("User Mentions", Cost.CHEAP, Feature.MENTIONS);
+        this.mentions = mentions;
+    }
+
+    @Override
+    public boolean isEnabled(AutomodContext context)
+    {
+        return context.settings.maxMentions>=AutomodManager.MENTION_MINIMUM;
+    }
+
+    @Override
+    public boolean isStateful()
+    {
+        return true;
+    }
+
+    @Override
+    public void apply(AutomodContext context)
+    {
+        int max = context.settings.maxMentions;
+        int count = context.view.getMentionedUsers().size();
+        if(count==0)
+            return;
+        long window = mentions.record(context.message.getGuild().getIdLong(), context.message.getAuthor().getIdLong(), 
+                context.view.getMentionedUsers(), context.getTime().toInstant().toEpochMilli());
+        if(count > max)
+        {
+            context.strike(count-max, "Mentioning "+count+" users");
+            context.delete();
+            return;
+        }
+        int after = MentionTracker.after(window);
+        if(after > max)
+        {
+            int strikes = after-Math.max(MentionTracker.before(window), max);
+            if(strikes>0)
+                context.strike(strikes, "Mentioning "+after+" users in "+MentionTracker.WINDOW/1000+" seconds");
+            context.delete();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+import com.jagrosh.vortex.automod.DomainClassifier;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ReferralRule extends AutomodRule
+{
+    private final DomainClassifier domainClassifier;
+
+    public ReferralRule(DomainClassifier domainClassifier)
+    {
+        super("Referral Links", Cost.MODERATE, Feature.LINKS);
+        this.domainClassifier = domainClassifier;
+    }
+
+    @Override
+    public boolean isEnabled(AutomodContext context)
+    {
+        return context.settings.refStrikes>0;
+    }
+
+    @Override
+    public void apply(AutomodContext context)
+    {
+        if(domainClassifier.containsReferral(context.view.getLinks()))
+        {
+            context.strike(context.settings.refStrikes, "Referral link");
+            context.delete();
+        }
+    }
+}
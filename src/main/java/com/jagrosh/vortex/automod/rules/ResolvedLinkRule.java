@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.automod.DeletionCoalescer;
+import com.jagrosh.vortex.automod.DomainClassifier;
+import com.jagrosh.vortex.automod.InviteResolver;
+import com.jagrosh.vortex.automod.LinkScanner;
+import com.jagrosh.vortex.automod.URLResolver;
+import com.jagrosh.vortex.database.managers.AutomodManager.AutomodSettings;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import net.dv8tion.jda.core.entities.Message;
+
+/**
+ * Follows the redirects of every link in the background, looking for invites
+ * and referral links at the end. This has to be the last rule, because it
+ * only runs for messages that nothing else is deleting, and it applies its
+ * own strikes when it's done.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ResolvedLinkRule extends AutomodRule
+{
+    private final Vortex vortex;
+    private final URLResolver urlResolver;
+    private final InviteResolver inviteResolver;
+    private final DomainClassifier domainClassifier;
+    private final DeletionCoalescer deletions;
+
+    public ResolvedLinkRule(Vortex vortex, URLResolver urlResolver, InviteResolver inviteResolver, DomainClassifier domainClassifier, 
+            DeletionCoalescer deletions)
+    {
+        super("Resolved Links", Cost.EXPENSIVE, Feature.LINKS);
+        this.vortex = vortex;
+        this.urlResolver = urlResolver;
+        this.inviteResolver = inviteResolver;
+        this.domainClassifier = domainClassifier;
+        this.deletions = deletions;
+    }
+
+    @Override
+    public boolean isEnabled(AutomodContext context)
+    {
+        return context.settings.resolveUrls && (context.settings.inviteStrikes>0 || context.settings.refStrikes>0);
+    }
+
+    @Override
+    public void apply(AutomodContext context)
+    {
+        if(context.shouldDelete())
+            return;
+        List<String> urls = context.view.getLinks().get(LinkScanner.Type.URL);
+        if(urls.isEmpty())
+            return;
+        // the redirects are traced on the resolver's own threads; nothing here waits for them
+        List<CompletableFuture<List<String>>> traces = new ArrayList<>(urls.size());
+        for(String url: urls)
+            traces.add(urlResolver.resolve(url));
+        CompletableFuture.allOf(traces.toArray(new CompletableFuture[traces.size()]))
+                .thenCompose(v -> checkInvites(context, urls, traces))
+                .thenAcceptAsync(containsInvite -> finish(context, urls, traces, containsInvite), vortex.getThreadpool());
+    }
+
+    // looks up the invites that the links redirect to, completing with whether any are for another guild
+    private CompletableFuture<Boolean> checkInvites(AutomodContext context, List<String> urls, List<CompletableFuture<List<String>>> traces)
+    {
+        Message message = context.message;
+        if(context.settings.inviteStrikes<1)
+            return CompletableFuture.completedFuture(false);
+        List<CompletableFuture<Long>> lookups = new ArrayList<>();
+        for(CompletableFuture<List<String>> trace: traces)
+            for(String resolved: trace.join())
+                for(String inviteCode: LinkScanner.scan(resolved).get(LinkScanner.Type.INVITE))
+                    lookups.add(inviteResolver.resolve(message.getJDA(), inviteCode));
+        if(lookups.isEmpty())
+            return CompletableFuture.completedFuture(false);
+        // invites that can't be looked up are let through
+        return CompletableFuture.allOf(lookups.toArray(new CompletableFuture[lookups.size()])).handle((v, ex) -> 
+                lookups.stream().anyMatch(l -> !l.isCompletedExceptionally() && l.join()!=message.getGuild().getIdLong()));
+    }
+
+    private void finish(AutomodContext context, List<String> urls, List<CompletableFuture<List<String>>> traces, boolean containsInvite)
+    {
+        Message message = context.message;
+        AutomodSettings settings = context.settings;
+        boolean containsRef = false;
+        String llink = null;
+        List<String> redirects = null;
+        for(int i=0; i<urls.size(); i++)
+        {
+            List<String> chain = traces.get(i).join();
+            if(settings.refStrikes>0 && !containsRef)
+                for(String resolved: chain)
+                    if(domainClassifier.containsReferral(LinkScanner.scan(resolved)))
+                        containsRef = true;
+            // log the first link that redirected anywhere
+            if(llink==null && !chain.isEmpty())
+            {
+                llink = urls.get(i);
+                redirects = chain;
+            }
+        }
+        int rstrikeTotal = (containsInvite ? settings.inviteStrikes : 0) + (containsRef ? settings.refStrikes : 0);
+        if(rstrikeTotal > 0)
+        {
+            String rreason = ((containsInvite ? ", Advertising (Resolved Link)" : "") + (containsRef ? ", Referral Link (Resolved Link)" : "")).substring(2);
+            if(context.isShadow())
+            {
+                context.logShadow(getName(), "delete, "+rstrikeTotal+" strikes ("+rreason+")");
+                return;
+            }
+            vortex.getBasicLogger().logRedirectPath(message, llink, redirects);
+            deletions.delete(message);
+            vortex.getStrikeHandler().applyStrikes(message.getGuild().getSelfMember(), 
+                context.getTime(), message.getAuthor(), rstrikeTotal, rreason);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod.rules;
+
+/**
+ * Catches zalgo text (letters buried under combining marks) and messages
+ * that are mostly emoji, using the counts from folding the message.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ZalgoRule extends AutomodRule
+{
+    public static final int MIN_MARKS = 10;
+    public static final int MIN_SYMBOLS = 20;
+
+    public ZalgoRule()
+    {
+        super("Zalgo", Cost.CHEAP, Feature.CONTENT);
+    }
+
+    @Override
+    public boolean isEnabled(AutomodContext context)
+    {
+        return context.settings.zalgoStrikes>0 && context.preventSpam;
+    }
+
+    @Override
+    public void apply(AutomodContext context)
+    {
+        // more marks than characters left after dropping them
+        int marks = context.view.getMarkCount();
+        if(marks>=MIN_MARKS && marks>context.view.getFolded().length())
+        {
+            context.strike(context.settings.zalgoStrikes, "Zalgo text");
+            context.delete();
+            return;
+        }
+        int symbols = context.view.getSymbolCount();
+        if(symbols>=MIN_SYMBOLS && symbols*2>context.view.getCodePointCount())
+        {
+            context.strike(context.settings.zalgoStrikes, "Emoji spam");
+            context.delete();
+        }
+    }
+}
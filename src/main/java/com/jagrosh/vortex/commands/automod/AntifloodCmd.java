@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.commands.automod;
+
+import com.jagrosh.jdautilities.command.Command;
+import com.jagrosh.jdautilities.command.CommandEvent;
+import com.jagrosh.vortex.Constants;
+import net.dv8tion.jda.core.Permission;
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.automod.FloodTracker;
+import com.jagrosh.vortex.database.managers.AutomodManager;
+import com.jagrosh.vortex.database.managers.PunishmentManager;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class AntifloodCmd extends Command
+{
+    private final Vortex vortex;
+    
+    public AntifloodCmd(Vortex vortex)
+    {
+        this.vortex = vortex;
+        this.name = "antiflood";
+        this.aliases = new String[]{"anti-flood","ratelimit"};
+        this.guildOnly = true;
+        this.category = new Category("AutoMod");
+        this.arguments = "<messages> <seconds> [strikes] or OFF";
+        this.help = "limits how fast users can send messages";
+        this.userPermissions = new Permission[]{Permission.MANAGE_SERVER};
+    }
+
+    @Override
+    protected void execute(CommandEvent event)
+    {
+        if(event.getArgs().isEmpty() || event.getArgs().equalsIgnoreCase("help"))
+        {
+            event.replySuccess("The Anti-Flood system prevents and punishes users for sending too many messages too quickly.\n"
+                    + "Usage: `"+Constants.PREFIX+name+" "+arguments+"`\n"
+                    + "`<messages>` - the number of messages a user can send in the interval\n"
+                    + "`<seconds>` - the length of the interval, in seconds\n"
+                    + "`[strikes]` - the number of strikes to assign when a user goes over the limit, or 0 to only delete messages");
+            return;
+        }
+        if(event.getArgs().equalsIgnoreCase("off"))
+        {
+            vortex.getDatabase().automod.setFloodSettings(event.getGuild(), 0, 0, 0);
+            event.replySuccess("Anti-Flood has been disabled.");
+            return;
+        }
+        int messages, seconds;
+        int strikes = 1;
+        String[] parts = event.getArgs().split("\\s+", 3);
+        if(parts.length<2)
+        {
+            event.replyError("Please include a number of messages and a number of seconds!");
+            return;
+        }
+        try
+        {
+            messages = Integer.parseInt(parts[0]);
+            seconds = Integer.parseInt(parts[1]);
+            if(parts.length==3)
+                strikes = Integer.parseInt(parts[2]);
+        }
+        catch(NumberFormatException ex)
+        {
+            event.replyError("`<messages>`, `<seconds>`, and `[strikes]` must all be integers!");
+            return;
+        }
+        if(messages<=0 || seconds<=0)
+        {
+            vortex.getDatabase().automod.setFloodSettings(event.getGuild(), 0, 0, 0);
+            event.replySuccess("Anti-Flood has been disabled.");
+            return;
+        }
+        if(strikes<0)
+        {
+            event.replyError("`[strikes]` can't be negative!");
+            return;
+        }
+        if(messages>FloodTracker.MAX_MESSAGES || seconds>FloodTracker.MAX_SECONDS || strikes>AutomodManager.MAX_STRIKES)
+        {
+            event.replyError("The limit can be at most `"+FloodTracker.MAX_MESSAGES+"` messages per `"+FloodTracker.MAX_SECONDS
+                    +"` seconds, with at most `"+AutomodManager.MAX_STRIKES+"` strikes");
+            return;
+        }
+        vortex.getDatabase().automod.setFloodSettings(event.getGuild(), strikes, messages, seconds);
+        if(strikes==0)
+        {
+            event.replySuccess("Anti-Flood will now delete messages past **"+messages+"** messages every **"+seconds
+                    +"** seconds, without assigning any strikes.");
+            return;
+        }
+        boolean also = vortex.getDatabase().actions.useDefaultSettings(event.getGuild());
+        event.replySuccess("Anti-Flood will now delete messages past **"+messages+"** messages every **"+seconds
+                +"** seconds, and assign **"+strikes+"** strikes each time a user goes over the limit."
+                +(also ? PunishmentManager.DEFAULT_SETUP_MESSAGE : ""));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.commands.automod;
+
+import com.jagrosh.jdautilities.command.Command;
+import com.jagrosh.jdautilities.command.CommandEvent;
+import com.jagrosh.vortex.Constants;
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.commands.CommandExceptionListener.CommandErrorException;
+import com.jagrosh.vortex.database.managers.AutomodManager;
+import com.jagrosh.vortex.database.managers.FilterManager;
+import com.jagrosh.vortex.database.managers.PunishmentManager;
+import com.jagrosh.vortex.utils.FormatUtil;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import net.dv8tion.jda.core.EmbedBuilder;
+import net.dv8tion.jda.core.Permission;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class FilterCmd extends Command
+{
+    private final static String USAGE = "\n\nUsage: `"+Constants.PREFIX+"filter <word|glob|regex> <strikes> <value>`\n"
+            + "`word` - matches whole words or phrases, ignoring case\n"
+            + "`glob` - like `word`, but `*` matches any part of a word and `?` matches any single character\n"
+            + "`regex` - matches a regular expression anywhere in the message";
+    private final Vortex vortex;
+    
+    public FilterCmd(Vortex vortex)
+    {
+        this.vortex = vortex;
+        this.guildOnly = true;
+        this.name = "filter";
+        this.aliases = new String[]{"addfilter","filters"};
+        this.category = new Category("AutoMod");
+        this.arguments = "<word|glob|regex> <strikes> <value>";
+        this.help = "shows filters, or adds a custom filter";
+        this.userPermissions = new Permission[]{Permission.MANAGE_SERVER};
+    }
+
+    @Override
+    protected void execute(CommandEvent event)
+    {
+        if(event.getArgs().isEmpty())
+        {
+            event.reply(new EmbedBuilder().setColor(event.getSelfMember().getColor())
+                    .addField(vortex.getDatabase().filters.getFiltersDisplay(event.getGuild()))
+                    .build());
+            return;
+        }
+        String[] parts = event.getArgs().split("\\s+", 3);
+        if(parts.length<3)
+            throw new CommandErrorException("Please include a filter type, a number of strikes, and a value!"+USAGE);
+        FilterManager.Type type;
+        try
+        {
+            type = FilterManager.Type.valueOf(parts[0].toUpperCase());
+        }
+        catch(IllegalArgumentException ex)
+        {
+            event.replyError("`"+parts[0]+"` is not a valid filter type!"+USAGE);
+            return;
+        }
+        int numstrikes;
+        try
+        {
+            numstrikes = Integer.parseInt(parts[1]);
+        }
+        catch(NumberFormatException ex)
+        {
+            event.replyError("`"+parts[1]+"` is not a valid integer!"+USAGE);
+            return;
+        }
+        if(numstrikes<0 || numstrikes>AutomodManager.MAX_STRIKES)
+        {
+            event.replyError("The number of strikes must be between 0 and "+AutomodManager.MAX_STRIKES);
+            return;
+        }
+        String value = parts[2].trim();
+        if(value.length()>FilterManager.MAX_LENGTH)
+        {
+            event.replyError("Filters can be at most "+FilterManager.MAX_LENGTH+" characters long!");
+            return;
+        }
+        if(type==FilterManager.Type.REGEX)
+        {
+            try
+            {
+                Pattern.compile(value);
+            }
+            catch(PatternSyntaxException ex)
+            {
+                event.replyError("`"+value+"` is not a valid regular expression!");
+                return;
+            }
+        }
+        int num = vortex.getDatabase().filters.addFilter(event.getGuild(), type, value, numstrikes);
+        if(num<0)
+            throw new CommandErrorException("This server already has "+FilterManager.MAX_FILTERS+" filters; please remove some before adding more.");
+        boolean also = numstrikes>0 && vortex.getDatabase().actions.useDefaultSettings(event.getGuild());
+        event.replySuccess(FormatUtil.filterEveryone("Added "+type.name().toLowerCase()+" filter `"+num+"`: messages matching `"+value
+                +"` will be deleted"+(numstrikes>0 ? " and receive `"+numstrikes+"` strikes." : ".")+(also ? PunishmentManager.DEFAULT_SETUP_MESSAGE : "")));
+    }
+}
@@ -74,6 +74,7 @@ public class IgnoreCmd extends Command
         if(tc!=null)
         {
             vortex.getDatabase().ignores.ignore(tc);
+            vortex.getAutoMod().getChannelFlags().invalidate(tc.getIdLong());
             event.replySuccess("Automod is now ignoring channel <#"+tc.getId()+">");
             return;
         }
@@ -84,6 +85,7 @@ public class IgnoreCmd extends Command
         else if (roles.size()==1)
         {
             vortex.getDatabase().ignores.ignore(roles.get(0));
+            vortex.getAutoMod().getExemptions().invalidate(event.getGuild());
             event.replySuccess("Automod is now ignoring role `"+roles.get(0).getName()+"`");
         }
         else
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.commands.automod;
+
+import com.jagrosh.jdautilities.command.Command;
+import com.jagrosh.jdautilities.command.CommandEvent;
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.automod.Filter;
+import com.jagrosh.vortex.utils.FormatUtil;
+import net.dv8tion.jda.core.Permission;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class UnfilterCmd extends Command
+{
+    private final Vortex vortex;
+    
+    public UnfilterCmd(Vortex vortex)
+    {
+        this.vortex = vortex;
+        this.guildOnly = true;
+        this.name = "unfilter";
+        this.aliases = new String[]{"removefilter","deletefilter"};
+        this.category = new Category("AutoMod");
+        this.arguments = "<number>";
+        this.help = "removes a custom filter";
+        this.userPermissions = new Permission[]{Permission.MANAGE_SERVER};
+    }
+
+    @Override
+    protected void execute(CommandEvent event)
+    {
+        if(event.getArgs().isEmpty())
+        {
+            event.replyError("Please include the number of the filter to remove! Filters can be viewed with the `filter` command.");
+            return;
+        }
+        int num;
+        try
+        {
+            num = Integer.parseInt(event.getArgs());
+        }
+        catch(NumberFormatException ex)
+        {
+            event.replyError("`"+event.getArgs()+"` is not a valid integer!");
+            return;
+        }
+        Filter filter = vortex.getDatabase().filters.deleteFilter(event.getGuild(), num);
+        if(filter==null)
+            event.replyError("No filter with number `"+num+"` exists!");
+        else
+            event.replySuccess(FormatUtil.filterEveryone("Removed "+filter.getType().name().toLowerCase()+" filter `"+num+"` (`"+filter.value+"`)"));
+    }
+}
@@ -63,7 +63,9 @@ public class UnignoreCmd extends Command {
         }
         if(tc!=null)
         {
-            if(vortex.getDatabase().ignores.unignore(tc))
+            boolean unignored = vortex.getDatabase().ignores.unignore(tc);
+            vortex.getAutoMod().getChannelFlags().invalidate(tc.getIdLong());
+            if(unignored)
                 event.replySuccess("Automod is no longer ignoring channel <#"+tc.getId()+">");
             else
                 event.replyError("Automod was not already ignoring <#"+tc.getId()+">!");
@@ -75,7 +77,9 @@ public class UnignoreCmd extends Command {
             event.replyError("No roles or text channels found for `"+event.getArgs()+"`");
         else if (roles.size()==1)
         {
-            if(vortex.getDatabase().ignores.unignore(roles.get(0)))
+            boolean unignored = vortex.getDatabase().ignores.unignore(roles.get(0));
+            vortex.getAutoMod().getExemptions().invalidate(event.getGuild());
+            if(unignored)
                 event.replySuccess("Automod is no longer ignoring role `"+roles.get(0).getName()+"`");
             else
                 event.replyError("Automod was not ignoring role `"+roles.get(0).getName()+"`"
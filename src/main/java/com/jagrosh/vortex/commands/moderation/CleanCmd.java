@@ -19,16 +19,20 @@ import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.automod.Filter.RegexFilter;
 import com.jagrosh.vortex.commands.CommandExceptionListener;
 import com.jagrosh.vortex.commands.CommandExceptionListener.CommandErrorException;
 import com.jagrosh.vortex.commands.CommandExceptionListener.CommandWarningException;
 import com.jagrosh.vortex.commands.ModCommand;
 import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
 import net.dv8tion.jda.core.Permission;
 import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.entities.MessageHistory;
+import com.jagrosh.vortex.utils.BoundedCharSequence;
 import com.jagrosh.vortex.utils.LogUtil;
 import net.dv8tion.jda.core.EmbedBuilder;
 import net.dv8tion.jda.core.entities.EmbedType;
@@ -46,6 +50,7 @@ public class CleanCmd extends ModCommand
     private final Pattern MENTION_PATTERN = Pattern.compile("<@!?(\\d{17,22})>");
     private final Pattern ID_PATTERN = Pattern.compile("\\b(\\d{17,22})\\b");
     private final Pattern NUM_PATTERN = Pattern.compile("\\b(\\d{1,4})\\b");
+    private final long REGEX_NANOS = TimeUnit.SECONDS.toNanos(2);
     private final String week2limit = " Note: Messages older than 2 weeks cannot be cleaned.";
     private final String noparams = "**No valid cleaning paramaters included!**\n"
                 +"This command is to remove many messages quickly. Pinned messages are ignored. "
@@ -131,6 +136,16 @@ public class CleanCmd extends ModCommand
         if(num>1000 || num<2)
             throw new CommandErrorException("Number of messages must be between 2 and 1000");
         
+        Pattern compiled;
+        try
+        {
+            compiled = pattern==null ? null : Pattern.compile(pattern);
+        }
+        catch(PatternSyntaxException ex)
+        {
+            throw new CommandErrorException("`"+pattern+"` is not a valid regular expression!");
+        }
+        
         int val2 = num+1;
         String p = pattern;
         event.async(() -> {
@@ -152,6 +167,8 @@ public class CleanCmd extends ModCommand
                 msgs.addAll(mh.retrievePast(val).complete());
 
             msgs.remove(event.getMessage());
+            // the regex gets a fixed amount of time for the whole clean, so a bad one can't hang this thread
+            long regexDeadline = System.nanoTime()+REGEX_NANOS;
             boolean week2 = false;
             List<Message> del = new LinkedList<>();
             for(Message msg : msgs)
@@ -176,9 +193,13 @@ public class CleanCmd extends ModCommand
                     continue;
                 }
                 try{
-                    if(p!=null && msg.getContentRaw().matches(p))
+                    if(compiled!=null && compiled.matcher(new BoundedCharSequence(msg.getContentRaw(), RegexFilter.maxSteps(msg.getContentRaw().length()), regexDeadline)).matches())
                         del.add(msg);
-                }catch(Exception e){}
+                }catch(BoundedCharSequence.LimitExceededException e)
+                {
+                    event.replyError("The regex `"+p+"` took too long to evaluate; please try a simpler one.");
+                    return;
+                }
             }
 
             if(del.isEmpty())
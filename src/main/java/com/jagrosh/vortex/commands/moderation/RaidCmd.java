@@ -40,7 +40,7 @@ public class RaidCmd extends ModCommand
     @Override
     protected void execute(CommandEvent event)
     {
-        boolean active = vortex.getDatabase().settings.getSettings(event.getGuild()).isInRaidMode();
+        boolean active = vortex.getAutoMod().isInRaidMode(event.getGuild());
         String[] parts = event.getArgs().split("\\s+", 2);
         if(parts[0].equalsIgnoreCase("off") || parts[0].equalsIgnoreCase("stop") || parts[0].equalsIgnoreCase("disable"))
         {
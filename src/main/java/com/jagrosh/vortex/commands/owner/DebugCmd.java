@@ -20,8 +20,17 @@ import com.jagrosh.jdautilities.command.Command;
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.vortex.Constants;
 import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.automod.CampaignDetector;
+import com.jagrosh.vortex.automod.ChannelLockouts;
+import com.jagrosh.vortex.automod.DeletionCoalescer;
+import com.jagrosh.vortex.automod.InviteResolver;
+import com.jagrosh.vortex.automod.RegexBudget;
+import com.jagrosh.vortex.automod.URLResolver;
+import com.jagrosh.vortex.automod.rules.AutomodRule;
+import com.jagrosh.vortex.utils.GuildLaneExecutor;
 import com.jagrosh.vortex.utils.FormatUtil;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import net.dv8tion.jda.core.JDA;
 
 /**
@@ -30,6 +39,7 @@ import net.dv8tion.jda.core.JDA;
  */
 public class DebugCmd extends Command
 {
+    private final static int CAMPAIGN_LINES = 5;
     private final Vortex vortex;
     
     public DebugCmd(Vortex vortex)
@@ -57,6 +67,39 @@ public class DebugCmd extends Command
         vortex.getShardManager().getShards().forEach(jda -> sb.append("\n").append(jda.getStatus()==JDA.Status.CONNECTED ? "+ " : "- ")
                 .append(jda.getShardInfo().getShardId()<10 ? "0" : "").append(jda.getShardInfo().getShardId()).append(": ").append(jda.getStatus())
                 .append(" ~ ").append(jda.getGuildCache().size()).append(" guilds"));
+        GuildLaneExecutor lanes = vortex.getAutoMod().getLanes();
+        sb.append("\n```\nAutomod Lanes: ```diff");
+        for(int i=0; i<lanes.getLaneCount(); i++)
+            sb.append("\n").append(lanes.getDepth(i)==0 ? "+ " : "- ").append(i).append(": ").append(lanes.getDepth(i)).append(" queued");
+        sb.append("\nSubmitted: ").append(lanes.getSubmitted()).append(", Dropped: ").append(lanes.getDropped()).append(", Failed: ").append(lanes.getFailed());
+        DeletionCoalescer deletions = vortex.getAutoMod().getDeletions();
+        sb.append("\nDeletions: ").append(deletions.getQueued()).append(" messages in ").append(deletions.getRequests())
+                .append(" requests (").append(deletions.getSaved()).append(" saved)");
+        RegexBudget regexBudget = vortex.getAutoMod().getRegexBudget();
+        sb.append("\nRegex: ").append(regexBudget.getGuildCount()).append(" guilds budgeted, ").append(regexBudget.getUnevaluated()).append(" unevaluated");
+        ChannelLockouts lockouts = vortex.getAutoMod().getLockouts();
+        sb.append("\nLockouts: ").append(lockouts.getStarted()).append(" started, ").append(lockouts.getExtended()).append(" extended, ")
+                .append(lockouts.getActive()).append(" active");
+        InviteResolver invites = vortex.getAutoMod().getInviteResolver();
+        sb.append("\nInvites: ").append(invites.getHits()).append(" hits, ").append(invites.getMisses()).append(" misses, ")
+                .append(invites.getCoalesced()).append(" coalesced, ").append(invites.getFailures()).append(" failed, ").append(invites.size()).append(" cached");
+        URLResolver urls = vortex.getAutoMod().getURLResolver();
+        sb.append("\nRedirects: ").append(urls.getHits()).append(" hits, ").append(urls.getMisses()).append(" misses, ")
+                .append(urls.getCoalesced()).append(" coalesced, ").append(urls.getDropped()).append(" dropped, ")
+                .append(urls.getRequests()).append(" requests, ").append(urls.getQueued()).append(" queued");
+        CampaignDetector detector = vortex.getAutoMod().getCampaigns();
+        List<CampaignDetector.Entry> campaigns = detector.getHeavyHitters();
+        sb.append("\nCampaigns: ").append(campaigns.size()).append(" tracked, ").append(detector.getPairs()).append(" pairs, ")
+                .append(String.format("%.1f", detector.getFill()*100)).append("% filled, ").append(detector.getRotations()).append(" rotations");
+        campaigns.stream().limit(CAMPAIGN_LINES).forEach(c -> sb.append("\n").append(c.getCount()>=CampaignDetector.TRENDING ? "- " : "+ ")
+                .append(c.getCount()).append(" guilds (~").append(c.getEstimate()).append("): ").append(c.sample.replace("`", "'").replace("\n", " ")));
+        sb.append("\n```\nAutomod Rules: ```diff");
+        for(AutomodRule rule: vortex.getAutoMod().getRules())
+        {
+            long runs = rule.getRuns();
+            sb.append("\n").append(rule.getName()).append(" (").append(rule.getCost()).append("): ").append(runs).append(" runs, ")
+                    .append(rule.getHits()).append(" hits, ").append(runs==0 ? 0 : rule.getNanos()/runs/1000).append("us avg");
+        }
         sb.append("\n```");
         event.reply(sb.toString().trim());
     }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.commands.owner;
+
+import com.jagrosh.jdautilities.command.Command;
+import com.jagrosh.jdautilities.command.CommandEvent;
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.automod.ShadowLog;
+import com.jagrosh.vortex.automod.rules.AutomodRule;
+import com.jagrosh.vortex.commands.CommandExceptionListener.CommandErrorException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ShadowCmd extends Command
+{
+    private final static int LOG_LINES = 15;
+    private final Vortex vortex;
+
+    public ShadowCmd(Vortex vortex)
+    {
+        this.vortex = vortex;
+        this.name = "shadow";
+        this.arguments = "<guild <id> | rule <name> | log [guild id] | stats | clear>";
+        this.help = "toggles or inspects automod shadow mode";
+        this.ownerCommand = true;
+        this.guildOnly = false;
+        this.hidden = true;
+    }
+
+    @Override
+    protected void execute(CommandEvent event)
+    {
+        String[] parts = event.getArgs().split("\\s+", 2);
+        String arg = parts.length>1 ? parts[1].trim() : "";
+        ShadowLog log = vortex.getAutoMod().getShadowLog();
+        switch(parts[0].toLowerCase())
+        {
+            case "guild":
+            {
+                long guildId = parseId(arg);
+                Set<Long> guilds = vortex.getAutoMod().getShadowGuilds();
+                if(guilds.remove(guildId))
+                    event.replySuccess("Automod is no longer in shadow mode for guild `"+guildId+"`");
+                else
+                {
+                    guilds.add(guildId);
+                    event.replySuccess("Automod is now in shadow mode for guild `"+guildId+"`");
+                }
+                break;
+            }
+            case "rule":
+            {
+                AutomodRule rule = vortex.getAutoMod().getRules().stream().filter(r -> r.getName().equalsIgnoreCase(arg)).findFirst().orElse(null);
+                if(rule==null)
+                    throw new CommandErrorException("No rule found for `"+arg+"`");
+                rule.setShadow(!rule.isShadow());
+                event.replySuccess("Rule **"+rule.getName()+"** is "+(rule.isShadow() ? "now" : "no longer")+" in shadow mode");
+                break;
+            }
+            case "log":
+            {
+                List<ShadowLog.Entry> entries = log.getRecent(LOG_LINES, arg.isEmpty() ? 0 : parseId(arg));
+                if(entries.isEmpty())
+                {
+                    event.replyWarning("No shadow actions have been recorded");
+                    return;
+                }
+                StringBuilder sb = new StringBuilder("Recent shadow actions:");
+                entries.forEach(e -> sb.append("\n").append(e));
+                event.reply(sb.length()>2000 ? sb.substring(0, 1997)+"..." : sb.toString());
+                break;
+            }
+            case "stats":
+            {
+                StringBuilder sb = new StringBuilder("Shadow guilds: ").append(vortex.getAutoMod().getShadowGuilds())
+                        .append("\nShadow rules: ").append(vortex.getAutoMod().getRules().stream().filter(r -> r.isShadow())
+                                .map(r -> r.getName()).collect(Collectors.joining(", ", "[", "]")))
+                        .append("\n```diff");
+                log.getStats().forEach((rule, stats) ->
+                {
+                    long runs = stats.getRuns();
+                    sb.append("\n").append(rule).append(": ").append(runs).append(" runs, ").append(stats.getHits()).append(" hits, ")
+                            .append(runs==0 ? 0 : stats.getNanos()/runs/1000).append("us avg, ").append(stats.getMaxNanos()/1000).append("us max");
+                });
+                sb.append("\n```");
+                event.reply(sb.toString());
+                break;
+            }
+            case "clear":
+                log.clear();
+                event.replySuccess("Cleared the shadow log");
+                break;
+            default:
+                throw new CommandErrorException("Invalid selection: `guild` `rule` `log` `stats` `clear`");
+        }
+    }
+
+    private static long parseId(String id)
+    {
+        try
+        {
+            return Long.parseLong(id);
+        }
+        catch(NumberFormatException ex)
+        {
+            throw new CommandErrorException("`"+id+"` is not a valid ID");
+        }
+    }
+}
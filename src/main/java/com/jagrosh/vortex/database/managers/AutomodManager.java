@@ -51,11 +51,17 @@ public class AutomodManager extends DataManager
     public final static SQLColumn<Integer> INVITE_STRIKES = new IntegerColumn("INVITE_STRIKES", false, 0);
     public final static SQLColumn<Integer> REF_STRIKES = new IntegerColumn("REF_STRIKES", false, 0);
     public final static SQLColumn<Integer> COPYPASTA_STRIKES = new IntegerColumn("COPYPASTA_STRIKES", false, 0);
+    public final static SQLColumn<Integer> CAMPAIGN_STRIKES = new IntegerColumn("CAMPAIGN_STRIKES", false, 0);
+    public final static SQLColumn<Integer> ZALGO_STRIKES = new IntegerColumn("ZALGO_STRIKES", false, 0);
     
     public final static SQLColumn<Integer> DUPE_STRIKES = new IntegerColumn("DUPE_STRIKES", false, 0);
     public final static SQLColumn<Integer> DUPE_DELETE_THRESH = new IntegerColumn("DUPE_DELETE_THRESH", false, 0);
     public final static SQLColumn<Integer> DUPE_STRIKE_THRESH = new IntegerColumn("DUPE_STRIKES_THRESH", false, 0);
     
+    public final static SQLColumn<Integer> FLOOD_STRIKES = new IntegerColumn("FLOOD_STRIKES", false, 0);
+    public final static SQLColumn<Integer> FLOOD_MESSAGES = new IntegerColumn("FLOOD_MESSAGES", false, 0);
+    public final static SQLColumn<Integer> FLOOD_SECONDS = new IntegerColumn("FLOOD_SECONDS", false, 0);
+    
     public final static SQLColumn<Integer> DEHOIST_CHAR = new IntegerColumn("DEHOIST_CHAR", false, 0);
             
     // Cache
@@ -91,14 +97,20 @@ public class AutomodManager extends DataManager
                      "Delete Threshold: `" + settings.dupeDeleteThresh + "`\n" +
                       "Strikes: `" + settings.dupeStrikes + " " + Action.STRIKE.getEmoji() + "`\n\n" 
                     : "Disabled\n\n")
+                + "__Anti-Flood__\n" + (settings.useAntiFlood() 
+                    ? "Limit: `" + settings.floodMessages + "` messages/`" + settings.floodSeconds + "`s\n" +
+                      (settings.floodStrikes==0 ? "Strikes: None (delete only)\n\n" : "Strikes: `" + settings.floodStrikes + " " + Action.STRIKE.getEmoji() + "`\n\n")
+                    : "Disabled\n\n")
                 + "__Maximum Mentions__\n" + (settings.maxMentions==0 && settings.maxRoleMentions==0 
                     ? "Disabled\n\n" 
                     : "Max User Mentions: " + (settings.maxMentions==0 ? "None\n" : "`" + settings.maxMentions + "`\n") +
                       "Max Role Mentions: " + (settings.maxRoleMentions==0 ? "None\n\n" : "`" + settings.maxRoleMentions + "`\n\n"))
-                + "__Spam Prevention__\n" + (settings.maxLines==0 && settings.copypastaStrikes==0
+                + "__Spam Prevention__\n" + (settings.maxLines==0 && settings.copypastaStrikes==0 && settings.campaignStrikes==0 && settings.zalgoStrikes==0
                     ? "Disabled\n\n"
                     : "Max Lines / Message: "+(settings.maxLines==0 ? "Disabled\n" : "`"+settings.maxLines+"`\n") + 
-                      "Copypasta: `" + settings.copypastaStrikes + " " + Action.STRIKE.getEmoji() + "`\n\n")
+                      "Copypasta: `" + settings.copypastaStrikes + " " + Action.STRIKE.getEmoji() + "`\n" +
+                      "Spam Campaigns: `" + settings.campaignStrikes + " " + Action.STRIKE.getEmoji() + "`\n" +
+                      "Zalgo/Emoji Spam: `" + settings.zalgoStrikes + " " + Action.STRIKE.getEmoji() + "`\n\n")
                 + "__Miscellaneous__\n"
                     + "Auto AntiRaid: " + (settings.useAutoRaidMode() 
                         ? "`" + settings.raidmodeNumber + "` joins/`" + settings.raidmodeTime + "`s\n" 
@@ -296,6 +308,46 @@ public class AutomodManager extends DataManager
         });
     }
     
+    public void setCampaignStrikes(Guild guild, int strikes)
+    {
+        invalidateCache(guild);
+        readWrite(selectAll(GUILD_ID.is(guild.getIdLong())), rs ->
+        {
+            if(rs.next())
+            {
+                CAMPAIGN_STRIKES.updateValue(rs, strikes);
+                rs.updateRow();
+            }
+            else
+            {
+                rs.moveToInsertRow();
+                GUILD_ID.updateValue(rs, guild.getIdLong());
+                CAMPAIGN_STRIKES.updateValue(rs, strikes);
+                rs.insertRow();
+            }
+        });
+    }
+    
+    public void setZalgoStrikes(Guild guild, int strikes)
+    {
+        invalidateCache(guild);
+        readWrite(selectAll(GUILD_ID.is(guild.getIdLong())), rs ->
+        {
+            if(rs.next())
+            {
+                ZALGO_STRIKES.updateValue(rs, strikes);
+                rs.updateRow();
+            }
+            else
+            {
+                rs.moveToInsertRow();
+                GUILD_ID.updateValue(rs, guild.getIdLong());
+                ZALGO_STRIKES.updateValue(rs, strikes);
+                rs.insertRow();
+            }
+        });
+    }
+    
     public void setDupeSettings(Guild guild, int strikes, int deleteThresh, int strikeThresh)
     {
         invalidateCache(guild);
@@ -320,6 +372,30 @@ public class AutomodManager extends DataManager
         });
     }
     
+    public void setFloodSettings(Guild guild, int strikes, int messages, int seconds)
+    {
+        invalidateCache(guild);
+        readWrite(selectAll(GUILD_ID.is(guild.getIdLong())), rs ->
+        {
+            if(rs.next())
+            {
+                FLOOD_STRIKES.updateValue(rs, strikes);
+                FLOOD_MESSAGES.updateValue(rs, messages);
+                FLOOD_SECONDS.updateValue(rs, seconds);
+                rs.updateRow();
+            }
+            else
+            {
+                rs.moveToInsertRow();
+                GUILD_ID.updateValue(rs, guild.getIdLong());
+                FLOOD_STRIKES.updateValue(rs, strikes);
+                FLOOD_MESSAGES.updateValue(rs, messages);
+                FLOOD_SECONDS.updateValue(rs, seconds);
+                rs.insertRow();
+            }
+        });
+    }
+    
     public void setDehoistChar(Guild guild, char dehoistChar)
     {
         invalidateCache(guild);
@@ -356,8 +432,9 @@ public class AutomodManager extends DataManager
         public final int maxMentions, maxRoleMentions;
         public final int maxLines;
         public final int raidmodeNumber, raidmodeTime;
-        public final int inviteStrikes, refStrikes, copypastaStrikes;
+        public final int inviteStrikes, refStrikes, copypastaStrikes, campaignStrikes, zalgoStrikes;
         public final int dupeStrikes, dupeDeleteThresh, dupeStrikeThresh;
+        public final int floodStrikes, floodMessages, floodSeconds;
         public final char dehoistChar;
         
         private AutomodSettings()
@@ -371,9 +448,14 @@ public class AutomodManager extends DataManager
             this.inviteStrikes = 0;
             this.refStrikes = 0;
             this.copypastaStrikes = 0;
+            this.campaignStrikes = 0;
+            this.zalgoStrikes = 0;
             this.dupeStrikes = 0;
             this.dupeDeleteThresh = 0;
             this.dupeStrikeThresh = 0;
+            this.floodStrikes = 0;
+            this.floodMessages = 0;
+            this.floodSeconds = 0;
             this.dehoistChar = 0;
         }
         
@@ -388,9 +470,14 @@ public class AutomodManager extends DataManager
             this.inviteStrikes = INVITE_STRIKES.getValue(rs);
             this.refStrikes = REF_STRIKES.getValue(rs);
             this.copypastaStrikes = COPYPASTA_STRIKES.getValue(rs);
+            this.campaignStrikes = CAMPAIGN_STRIKES.getValue(rs);
+            this.zalgoStrikes = ZALGO_STRIKES.getValue(rs);
             this.dupeStrikes = DUPE_STRIKES.getValue(rs);
             this.dupeDeleteThresh = DUPE_DELETE_THRESH.getValue(rs);
             this.dupeStrikeThresh = DUPE_STRIKE_THRESH.getValue(rs);
+            this.floodStrikes = FLOOD_STRIKES.getValue(rs);
+            this.floodMessages = FLOOD_MESSAGES.getValue(rs);
+            this.floodSeconds = FLOOD_SECONDS.getValue(rs);
             this.dehoistChar = (char)((int)DEHOIST_CHAR.getValue(rs));
         }
         
@@ -403,5 +490,11 @@ public class AutomodManager extends DataManager
         {
             return dupeStrikes>0 && dupeDeleteThresh>0 && dupeStrikeThresh>0;
         }
+        
+        public boolean useAntiFlood()
+        {
+            // strikes can be 0, to only delete messages over the limit
+            return floodMessages>0 && floodSeconds>0;
+        }
     }
 }
@@ -20,8 +20,19 @@ import com.jagrosh.easysql.DatabaseConnector;
 import com.jagrosh.easysql.SQLColumn;
 import com.jagrosh.easysql.columns.*;
 import com.jagrosh.vortex.automod.Filter;
+import com.jagrosh.vortex.automod.FilterMatcher;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.PatternSyntaxException;
 import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.MessageEmbed.Field;
 
 /**
  *
@@ -29,11 +40,33 @@ import net.dv8tion.jda.core.entities.Guild;
  */
 public class FilterManager extends DataManager
 {
+    public final static int MAX_FILTERS = 50;
+    public final static int MAX_LENGTH = 60;
+    private static final String FILTERS_TITLE = "\uD83D\uDEAB Filters";
+    private static final int CACHE_SIZE = 5000;
+    private static final long CACHE_TTL = TimeUnit.HOURS.toMillis(1);
+
     public final static SQLColumn<Long> GUILD_ID = new LongColumn("GUILD_ID",false,0L);
     public final static SQLColumn<Integer> NUM = new IntegerColumn("NUM", false, 0);
     public final static SQLColumn<Integer> TYPE = new IntegerColumn("TYPE", false, 0);
-    public final static SQLColumn<String> VALUE = new StringColumn("VALUE", false, "", 60);
-    
+    public final static SQLColumn<String> VALUE = new StringColumn("VALUE", false, "", MAX_LENGTH);
+    public final static SQLColumn<Integer> STRIKES = new IntegerColumn("STRIKES", false, 0);
+    public final static SQLColumn<Boolean> DISABLED = new BooleanColumn("DISABLED", false, false);
+
+    // Cache
+    // only guilds that have had filters get a matcher cached; everything else is answered from withFilters
+    // every write bumps the version, so a read that raced with a write doesn't cache what it read
+    private final Map<Long, CachedMatcher> cache = new LinkedHashMap<Long, CachedMatcher>(CACHE_SIZE, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedMatcher> eldest)
+        {
+            return size()>CACHE_SIZE;
+        }
+    };
+    private Set<Long> withFilters = null;
+    private long version = 0;
+
     public FilterManager(DatabaseConnector connector)
     {
         super(connector, "FILTERS");
@@ -44,22 +77,201 @@ public class FilterManager extends DataManager
     {
         return GUILD_ID+", "+NUM;
     }
-    
-    public int addFilter(Guild guild, Type type, String value)
+
+    // returns the number of the new filter, or -1 if the guild is already at the maximum
+    public int addFilter(Guild guild, Type type, String value, int strikes)
     {
-        return 0;
+        int num = readWrite(selectAll(GUILD_ID.is(guild.getIdLong())), rs ->
+        {
+            int count = 0;
+            int max = 0;
+            while(rs.next())
+            {
+                count++;
+                max = Math.max(max, NUM.getValue(rs));
+            }
+            if(count>=MAX_FILTERS)
+                return -1;
+            rs.moveToInsertRow();
+            GUILD_ID.updateValue(rs, guild.getIdLong());
+            NUM.updateValue(rs, max+1);
+            TYPE.updateValue(rs, type.ordinal());
+            VALUE.updateValue(rs, value);
+            STRIKES.updateValue(rs, strikes);
+            rs.insertRow();
+            return max+1;
+        });
+        invalidateCache(guild, num>0);
+        return num;
     }
-    
-    public Filter deleteFilter(Guild guild, int index)
+
+    public Filter deleteFilter(Guild guild, int num)
+    {
+        Filter deleted = readWrite(selectAll(GUILD_ID.is(guild.getIdLong())+" AND "+NUM.is(num)), rs ->
+        {
+            if(rs.next())
+            {
+                Filter filter = toFilter(rs);
+                rs.deleteRow();
+                return filter;
+            }
+            return null;
+        });
+        invalidateCache(guild, false);
+        return deleted;
+    }
+
+    // returns true if the filter was enabled before this
+    public boolean disableFilter(Guild guild, int num)
     {
-        return null;
+        boolean disabled = readWrite(selectAll(GUILD_ID.is(guild.getIdLong())+" AND "+NUM.is(num)), rs ->
+        {
+            if(rs.next() && !DISABLED.getValue(rs))
+            {
+                DISABLED.updateValue(rs, true);
+                rs.updateRow();
+                return true;
+            }
+            return false;
+        });
+        invalidateCache(guild, false);
+        return disabled;
     }
-    
+
     public List<Filter> getFilters(Guild guild)
     {
-        return null;
+        return getMatcher(guild).getFilters();
+    }
+
+    // guilds that have never had filters get FilterMatcher.EMPTY without a query, so this is cheap to call for every message
+    public FilterMatcher getMatcher(Guild guild)
+    {
+        long guildId = guild.getIdLong();
+        long now = System.currentTimeMillis();
+        long readVersion;
+        synchronized(cache)
+        {
+            if(withFilters!=null && !withFilters.contains(guildId))
+                return FilterMatcher.EMPTY;
+            CachedMatcher cached = cache.get(guildId);
+            if(cached!=null && now<cached.expires)
+                return cached.matcher;
+            readVersion = version;
+        }
+        if(!loadedWithFilters(readVersion, guildId))
+            return FilterMatcher.EMPTY;
+        FilterMatcher matcher = read(selectAll(GUILD_ID.is(guildId)), rs ->
+        {
+            List<Filter> list = new LinkedList<>();
+            while(rs.next())
+            {
+                Filter filter = toFilter(rs);
+                if(filter!=null)
+                    list.add(filter);
+            }
+            return list.isEmpty() ? FilterMatcher.EMPTY : new FilterMatcher(list);
+        });
+        if(matcher==null)
+            return FilterMatcher.EMPTY;
+        synchronized(cache)
+        {
+            if(version==readVersion)
+                cache.put(guildId, new CachedMatcher(matcher, now+CACHE_TTL));
+        }
+        return matcher;
     }
-    
+
+    public boolean hasFilters(Guild guild)
+    {
+        return !getMatcher(guild).isEmpty();
+    }
+
+    public Field getFiltersDisplay(Guild guild)
+    {
+        List<Filter> filters = getFilters(guild);
+        if(filters.isEmpty())
+            return new Field(FILTERS_TITLE, "No filters set!", true);
+        StringBuilder sb = new StringBuilder();
+        filters.stream().sorted((a,b) -> a.num-b.num).forEach(f -> sb.append("\n`").append(f.num).append("` ")
+                .append(f.getType().name().toLowerCase()).append(" (").append(f.strikes).append(" strikes): `").append(f.value).append("`")
+                .append(f instanceof Filter.RegexFilter && ((Filter.RegexFilter)f).disabled ? " [disabled]" : ""));
+        return new Field(FILTERS_TITLE, sb.toString().trim(), true);
+    }
+
+    // false if the guild definitely has no filters; loads the set of guilds with filters the first time it's needed
+    private boolean loadedWithFilters(long readVersion, long guildId)
+    {
+        synchronized(cache)
+        {
+            if(withFilters!=null)
+                return true;
+        }
+        Set<Long> guilds = read(select(GUILD_ID+" IS NOT NULL", GUILD_ID), rs ->
+        {
+            Set<Long> set = new HashSet<>();
+            while(rs.next())
+                set.add(GUILD_ID.getValue(rs));
+            return set;
+        });
+        if(guilds==null)
+            return true;
+        synchronized(cache)
+        {
+            if(withFilters==null && version==readVersion)
+                withFilters = guilds;
+            return withFilters==null || withFilters.contains(guildId);
+        }
+    }
+
+    // called after a write has gone through, so nothing read before it can stay cached
+    private void invalidateCache(Guild guild, boolean added)
+    {
+        synchronized(cache)
+        {
+            version++;
+            cache.remove(guild.getIdLong());
+            if(added && withFilters!=null)
+                withFilters.add(guild.getIdLong());
+        }
+    }
+
+    private static Filter toFilter(ResultSet rs) throws SQLException
+    {
+        int num = NUM.getValue(rs);
+        int strikes = STRIKES.getValue(rs);
+        String value = VALUE.getValue(rs);
+        switch(Type.values()[TYPE.getValue(rs)])
+        {
+            case WORD:
+                return new Filter.WordFilter(num, strikes, value);
+            case GLOB:
+                return new Filter.GlobFilter(num, strikes, value);
+            case REGEX:
+                try
+                {
+                    return new Filter.RegexFilter(num, strikes, value, DISABLED.getValue(rs));
+                }
+                catch(PatternSyntaxException ex)
+                {
+                    return null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    private static class CachedMatcher
+    {
+        private final FilterMatcher matcher;
+        private final long expires;
+
+        private CachedMatcher(FilterMatcher matcher, long expires)
+        {
+            this.matcher = matcher;
+            this.expires = expires;
+        }
+    }
+
     public enum Type
     {
         WORD, GLOB, REGEX
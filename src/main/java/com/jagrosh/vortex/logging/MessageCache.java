@@ -17,40 +17,53 @@ package com.jagrosh.vortex.logging;
 
 import com.jagrosh.vortex.utils.FixedCache;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.Message;
 
 /**
+ * Per-guild cache of recent messages. The listener writes to it from the event
+ * thread while automod rules read it from their lanes, so each guild's cache
+ * is only touched while holding that cache's lock.
  *
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class MessageCache
 {
     private final static int SIZE = 1000;
-    private final HashMap<Long,FixedCache<Long,Message>> cache = new HashMap<>();
+    private final ConcurrentHashMap<Long,FixedCache<Long,Message>> cache = new ConcurrentHashMap<>();
     
     public Message putMessage(Message m)
     {
-        if(!cache.containsKey(m.getGuild().getIdLong()))
-            cache.put(m.getGuild().getIdLong(), new FixedCache<>(SIZE));
-        return cache.get(m.getGuild().getIdLong()).put(m.getIdLong(), m);
+        FixedCache<Long,Message> messages = cache.computeIfAbsent(m.getGuild().getIdLong(), id -> new FixedCache<>(SIZE));
+        synchronized(messages)
+        {
+            return messages.put(m.getIdLong(), m);
+        }
     }
     
     public Message pullMessage(Guild guild, long messageId)
     {
-        if(!cache.containsKey(guild.getIdLong()))
+        FixedCache<Long,Message> messages = cache.get(guild.getIdLong());
+        if(messages==null)
             return null;
-        return cache.get(guild.getIdLong()).pull(messageId);
+        synchronized(messages)
+        {
+            return messages.pull(messageId);
+        }
     }
     
     public List<Message> getMessages(Guild guild, Predicate<Message> predicate)
     {
-        if(!cache.containsKey(guild.getIdLong()))
+        FixedCache<Long,Message> messages = cache.get(guild.getIdLong());
+        if(messages==null)
             return Collections.EMPTY_LIST;
-        return cache.get(guild.getIdLong()).getValues().stream().filter(predicate).collect(Collectors.toList());
+        synchronized(messages)
+        {
+            return messages.getValues().stream().filter(predicate).collect(Collectors.toList());
+        }
     }
 }
@@ -172,6 +172,19 @@ public class ModLogger
         });
     }
     
+    public void postFilterDisabledCase(Member moderator, OffsetDateTime now, int filterNum, String reason)
+    {
+        TextChannel modlog = vortex.getDatabase().settings.getSettings(moderator.getGuild()).getModLogChannel(moderator.getGuild());
+        if(modlog==null || !modlog.canTalk())
+            return;
+        getCaseNumberAsync(modlog, i -> 
+        {
+            modlog.sendMessage(FormatUtil.filterEveryone(LogUtil.modlogFilterFormat(now, 
+                    vortex.getDatabase().settings.getSettings(moderator.getGuild()).getTimezone(), i, 
+                    moderator.getUser(), filterNum, reason))).queue();
+        });
+    }
+    
     public void postPseudoCase(Member moderator, OffsetDateTime now, Action act, User target, int minutes, String reason)
     {
         TextChannel modlog = vortex.getDatabase().settings.getSettings(moderator.getGuild()).getModLogChannel(moderator.getGuild());
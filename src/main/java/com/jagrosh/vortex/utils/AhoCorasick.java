@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Case-insensitive multi-keyword matcher. The automaton is immutable once
+ * built, so it can be shared between threads and swapped out whole.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class AhoCorasick
+{
+    private static final int[] NONE = new int[0];
+
+    // per state: sorted transition characters and their targets
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    // per state: every pattern that ends here, including through suffixes
+    private final int[][] outputs;
+    private final int patterns;
+
+    /**
+     * Builds an automaton where each pattern is identified by its index in the list
+     *
+     * @param  patterns the patterns to match, empty patterns never match
+     */
+    public AhoCorasick(List<String> patterns)
+    {
+        this.patterns = patterns.size();
+        List<StringBuilder> edgeKeys = new ArrayList<>();
+        List<List<Integer>> edgeTargets = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        edgeKeys.add(new StringBuilder());
+        edgeTargets.add(new ArrayList<>());
+        ends.add(new ArrayList<>());
+
+        // build the trie
+        for(int p=0; p<patterns.size(); p++)
+        {
+            String pattern = patterns.get(p);
+            if(pattern==null || pattern.isEmpty())
+                continue;
+            int state = 0;
+            for(int i=0; i<pattern.length(); i++)
+            {
+                char c = fold(pattern.charAt(i));
+                int idx = edgeKeys.get(state).indexOf(String.valueOf(c));
+                if(idx>=0)
+                    state = edgeTargets.get(state).get(idx);
+                else
+                {
+                    int created = edgeKeys.size();
+                    edgeKeys.add(new StringBuilder());
+                    edgeTargets.add(new ArrayList<>());
+                    ends.add(new ArrayList<>());
+                    edgeKeys.get(state).append(c);
+                    edgeTargets.get(state).add(created);
+                    state = created;
+                }
+            }
+            ends.get(state).add(p);
+        }
+
+        // freeze the trie into sorted arrays
+        int size = edgeKeys.size();
+        keys = new char[size][];
+        targets = new int[size][];
+        for(int s=0; s<size; s++)
+        {
+            char[] k = edgeKeys.get(s).toString().toCharArray();
+            List<Integer> t = edgeTargets.get(s);
+            Integer[] order = new Integer[k.length];
+            for(int i=0; i<order.length; i++)
+                order[i] = i;
+            Arrays.sort(order, (a, b) -> Character.compare(k[a], k[b]));
+            keys[s] = new char[k.length];
+            targets[s] = new int[k.length];
+            for(int i=0; i<order.length; i++)
+            {
+                keys[s][i] = k[order[i]];
+                targets[s][i] = t.get(order[i]);
+            }
+        }
+
+        // breadth-first pass to set the failure links and merge outputs
+        fail = new int[size];
+        outputs = new int[size][];
+        outputs[0] = toArray(ends.get(0), NONE);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for(int child: targets[0])
+        {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while(!queue.isEmpty())
+        {
+            int state = queue.poll();
+            outputs[state] = toArray(ends.get(state), outputs[fail[state]]);
+            for(int i=0; i<keys[state].length; i++)
+            {
+                char c = keys[state][i];
+                int child = targets[state][i];
+                int f = fail[state];
+                int next;
+                while((next = step(f, c))<0 && f!=0)
+                    f = fail[f];
+                fail[child] = next<0 || next==child ? 0 : next;
+                queue.add(child);
+            }
+        }
+    }
+
+    public int getPatternCount()
+    {
+        return patterns;
+    }
+
+    /**
+     * Runs the text through the automaton, calling the listener for every
+     * pattern occurrence in order of where it ends
+     *
+     * @param  text     the text to search
+     * @param  listener receives matches, and can stop the search by returning true
+     * @return true if the listener stopped the search
+     */
+    public boolean search(CharSequence text, MatchListener listener)
+    {
+        int state = 0;
+        for(int i=0; i<text.length(); i++)
+        {
+            char c = fold(text.charAt(i));
+            int next;
+            while((next = step(state, c))<0 && state!=0)
+                state = fail[state];
+            state = next<0 ? 0 : next;
+            for(int pattern: outputs[state])
+                if(listener.onMatch(pattern, i+1))
+                    return true;
+        }
+        return false;
+    }
+
+    private int step(int state, char c)
+    {
+        int idx = Arrays.binarySearch(keys[state], c);
+        return idx<0 ? -1 : targets[state][idx];
+    }
+
+    private static int[] toArray(List<Integer> own, int[] inherited)
+    {
+        if(own.isEmpty())
+            return inherited;
+        int[] arr = Arrays.copyOf(inherited, inherited.length+own.size());
+        for(int i=0; i<own.size(); i++)
+            arr[inherited.length+i] = own.get(i);
+        return arr;
+    }
+
+    public static char fold(char c)
+    {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    @FunctionalInterface
+    public interface MatchListener
+    {
+        boolean onMatch(int pattern, int end);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size set of keys that can say a key was added when it wasn't, but
+ * never the other way around. Keys can't be removed, only cleared all at once.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class BloomFilter
+{
+    private final AtomicLongArray bits;
+    private final int mask;
+    private final int hashes;
+    private final AtomicInteger added = new AtomicInteger();
+
+    /**
+     * @param bitCount the number of bits, a power of two (at least 64)
+     * @param hashes   the number of bits set for each key
+     */
+    public BloomFilter(int bitCount, int hashes)
+    {
+        if(bitCount<64 || Integer.bitCount(bitCount)!=1 || hashes<1)
+            throw new IllegalArgumentException("Invalid bloom filter size");
+        this.bits = new AtomicLongArray(bitCount>>>6);
+        this.mask = bitCount-1;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Adds a key
+     *
+     * @param  key the key
+     * @return true if the key wasn't in the filter before
+     */
+    public boolean add(long key)
+    {
+        long h = CountMinSketch.mix(key);
+        boolean fresh = false;
+        for(int i=0; i<hashes; i++)
+        {
+            int bit = index(h, i);
+            long flag = 1L<<(bit & 63);
+            long word;
+            while(((word = bits.get(bit>>>6)) & flag)==0)
+            {
+                if(bits.compareAndSet(bit>>>6, word, word|flag))
+                {
+                    fresh = true;
+                    break;
+                }
+            }
+        }
+        if(fresh)
+            added.incrementAndGet();
+        return fresh;
+    }
+
+    public boolean mightContain(long key)
+    {
+        long h = CountMinSketch.mix(key);
+        for(int i=0; i<hashes; i++)
+        {
+            int bit = index(h, i);
+            if((bits.get(bit>>>6) & 1L<<(bit & 63))==0)
+                return false;
+        }
+        return true;
+    }
+
+    // how many keys were new when they were added, since the last clear
+    public int size()
+    {
+        return added.get();
+    }
+
+    // the fraction of bits that are set, which scans the whole filter
+    public double fill()
+    {
+        long set = 0;
+        for(int i=0; i<bits.length(); i++)
+            set += Long.bitCount(bits.get(i));
+        return (double)set/(bits.length()<<6);
+    }
+
+    public void clear()
+    {
+        for(int i=0; i<bits.length(); i++)
+            bits.set(i, 0L);
+        added.set(0);
+    }
+
+    private int index(long h, int i)
+    {
+        return ((int)h + i*((int)(h>>>32)|1)) & mask;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+/**
+ * CharSequence that gives up after a fixed number of character reads, or
+ * once a deadline passes. Regex matching reads a character for every step it
+ * takes, so this puts a hard cap on how much work a user-supplied pattern can
+ * do no matter how badly it backtracks.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class BoundedCharSequence implements CharSequence
+{
+    // how many reads happen between clock checks
+    private static final int CLOCK_INTERVAL = 1024;
+
+    private final CharSequence inner;
+    private final long maxSteps;
+    private final long deadline;
+    private final boolean timed;
+    private long steps = 0;
+
+    public BoundedCharSequence(CharSequence inner, long maxSteps)
+    {
+        this.inner = inner;
+        this.maxSteps = maxSteps;
+        this.deadline = 0L;
+        this.timed = false;
+    }
+
+    /**
+     * @param inner    the wrapped sequence
+     * @param maxSteps the maximum number of character reads
+     * @param deadline the {@link System#nanoTime()} after which reads fail
+     */
+    public BoundedCharSequence(CharSequence inner, long maxSteps, long deadline)
+    {
+        this.inner = inner;
+        this.maxSteps = maxSteps;
+        this.deadline = deadline;
+        this.timed = true;
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        if(++steps > maxSteps)
+            throw new LimitExceededException(true);
+        if(timed && (steps % CLOCK_INTERVAL)==0 && System.nanoTime()-deadline > 0)
+            throw new LimitExceededException(false);
+        return inner.charAt(index);
+    }
+
+    @Override
+    public int length()
+    {
+        return inner.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        return inner.subSequence(start, end);
+    }
+
+    @Override
+    public String toString()
+    {
+        return inner.toString();
+    }
+
+    public long getSteps()
+    {
+        return steps;
+    }
+
+    public static class LimitExceededException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+        private final boolean stepLimit;
+
+        private LimitExceededException(boolean stepLimit)
+        {
+            super(stepLimit ? "Step limit exceeded" : "Time limit exceeded", null, false, false);
+            this.stepLimit = stepLimit;
+        }
+
+        public boolean isStepLimit()
+        {
+            return stepLimit;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import java.util.HashMap;
+
+/**
+ * Collapses repeated text like
+ * {@code text.replaceAll("(.+?)\\s*(\\1\\s*)+", "$1")}, in linear time.
+ *
+ * <p>The text is split into tokens: each non-whitespace character (a whole
+ * code point) along with the whitespace after it. A unit that starts on a
+ * non-whitespace character never needs to end in whitespace (the gap before
+ * the repeat can take it), so the regex's shortest unit at a token is the
+ * shortest run of tokens that repeats right away, where the whitespace after
+ * the unit's last token is the gap and everything else must match exactly.
+ * That's a square in the token sequence, found with a prefix function (KMP)
+ * run from the token: {@code l} tokens repeat when the first {@code 2l-1}
+ * tokens have a period dividing {@code l} and the next character matches.
+ * Repeats are then consumed greedily, like the regex.
+ *
+ * <p>To stay linear, this differs from the regex in two ways:
+ * <ul>
+ * <li>A unit starting at the first non-whitespace character of a line can be
+ *     any length, but anywhere else it can only be up to {@link #MAX_UNIT}
+ *     tokens, so each position does at most about {@code 2*MAX_UNIT} token
+ *     comparisons. A line's first search can run past the end of the line by
+ *     at most the line's length, and a line only has one.</li>
+ * <li>At whitespace, only a single whitespace character repeated later in the
+ *     same run is collapsed; units that start with whitespace aren't looked
+ *     for. The regex nearly always collapses the same text from the next
+ *     token instead.</li>
+ * </ul>
+ * Whole messages and lines repeated any number of times, and repeats of up
+ * to {@link #MAX_UNIT} tokens anywhere, come out exactly as with the regex.
+ * The result only depends on the text, so it's just as good for spotting
+ * duplicates. See CondenserBench in the tests for timings next to the regex.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class Condenser
+{
+    public static final int MAX_UNIT = 32; // tokens
+
+    public static String condense(String text)
+    {
+        StringBuilder sb = new StringBuilder(text.length());
+        new Run(text).collapse(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Equivalent to {@code Fingerprint.of(condense(text))}, without building the condensed string
+     *
+     * @param  text the text to condense
+     * @return the fingerprint of the condensed text
+     */
+    public static long fingerprint(String text)
+    {
+        return new Run(text).collapse(null);
+    }
+
+    private static class Run
+    {
+        private final String s;
+        private final int n;
+        private final int[] nonWs;      // first non-whitespace index at or after k
+        private final boolean[] wsRepeat; // whitespace at k appears again later in the same run
+        private final int[] tokenAt;    // the token starting at k
+        private final int[] cps;        // each token's code point
+        private final int[] starts;     // where each token starts
+        private final int[] gaps;       // an id for the whitespace after each token
+        private final boolean[] breaks; // the whitespace after the token has a line break
+        private final boolean[] lineFirst; // the token is the first on its line
+        private final int[] prefix;
+        private int tokens = 0;
+
+        private Run(String s)
+        {
+            this.s = s;
+            this.n = s.length();
+            nonWs = new int[n+1];
+            wsRepeat = new boolean[n];
+            nonWs[n] = n;
+            int[] last = new int[' '+1];
+            for(int k=n-1; k>=0; k--)
+            {
+                char c = s.charAt(k);
+                nonWs[k] = isSpace(c) ? nonWs[k+1] : k;
+                if(isSpace(c))
+                {
+                    wsRepeat[k] = last[c]>k && last[c]<nonWs[k];
+                    last[c] = k;
+                }
+            }
+
+            tokenAt = new int[n];
+            cps = new int[n];
+            starts = new int[n];
+            gaps = new int[n];
+            breaks = new boolean[n];
+            lineFirst = new boolean[n];
+            prefix = new int[n];
+            HashMap<String,Integer> ids = null;
+            boolean newLine = true;
+            int k = nonWs[0];
+            while(k<n)
+            {
+                int cp = s.codePointAt(k);
+                int end = k+Character.charCount(cp);
+                int next = nonWs[end];
+                int t = tokens++;
+                tokenAt[k] = t;
+                cps[t] = cp;
+                starts[t] = k;
+                lineFirst[t] = newLine;
+                // single whitespace characters get small ids, longer runs get ids from the map
+                if(next-end<=1)
+                    gaps[t] = next==end ? 0 : 1+s.charAt(end);
+                else
+                {
+                    if(ids==null)
+                        ids = new HashMap<>();
+                    String gap = s.substring(end, next);
+                    Integer id = ids.get(gap);
+                    if(id==null)
+                        ids.put(gap, id = ' '+2+ids.size());
+                    gaps[t] = id;
+                }
+                for(int w=end; w<next && !breaks[t]; w++)
+                    breaks[t] = isLineTerminator(s.charAt(w));
+                newLine = breaks[t] || isLineTerminator(cp);
+                k = next;
+            }
+        }
+
+        // writes the condensed text into the builder if there is one, and returns its fingerprint
+        private long collapse(StringBuilder out)
+        {
+            long hash = Fingerprint.SEED;
+            int i = 0;
+            while(i<n)
+            {
+                char c = s.charAt(i);
+                int unit;
+                int single = 1;
+                if(isSpace(c))
+                    unit = wsRepeat[i] && !isLineTerminator(c) ? 1 : -1;
+                else if(isLineTerminator(c))
+                    unit = -1;
+                else
+                {
+                    int t = tokenAt[i];
+                    int len = shortestUnit(t, lineFirst[t] ? Integer.MAX_VALUE : MAX_UNIT);
+                    unit = len<0 ? -1 : end(t+len-1)-i;
+                    single = end(t)-i;
+                }
+                if(unit<0)
+                {
+                    for(int k=i; k<i+single; k++)
+                        hash = Fingerprint.append(hash, s.charAt(k));
+                    if(out!=null)
+                        out.append(s, i, i+single);
+                    i += single;
+                    continue;
+                }
+
+                // the regex takes as much whitespace as it can before the first repeat
+                int p = i+unit;
+                int q = nonWs[p];
+                while(q>p && !same(i, q, unit))
+                    q--;
+
+                // then repeats greedily, taking all whitespace after each one
+                int pos = nonWs[q+unit];
+                while(same(i, pos, unit))
+                    pos = nonWs[pos+unit];
+
+                for(int k=i; k<i+unit; k++)
+                    hash = Fingerprint.append(hash, s.charAt(k));
+                if(out!=null)
+                    out.append(s, i, i+unit);
+                i = pos;
+            }
+            return hash;
+        }
+
+        // the fewest tokens from a that repeat right away, up to limit, or -1
+        private int shortestUnit(int a, int limit)
+        {
+            prefix[0] = 0;
+            int k = 0;
+            for(int x=1; ; x++)
+            {
+                // a unit can't span lines, but the gap after it can
+                int t = a+x-1;
+                if(isLineTerminator(cps[t]))
+                    limit = Math.min(limit, x-1);
+                if(breaks[t])
+                    limit = Math.min(limit, x);
+                if(a+x>=tokens)
+                    return -1;
+                if((x&1)==1)
+                {
+                    int len = (x+1)>>1;
+                    if(len>limit)
+                        return -1;
+                    if(len%(x-prefix[x-1])==0 && cps[a+len-1]==cps[a+x])
+                        return len;
+                }
+                while(k>0 && !equal(a+k, a+x))
+                    k = prefix[k-1];
+                if(equal(a+k, a+x))
+                    k++;
+                prefix[x] = k;
+            }
+        }
+
+        private boolean equal(int t, int u)
+        {
+            return cps[t]==cps[u] && gaps[t]==gaps[u];
+        }
+
+        // where a token's code point ends
+        private int end(int t)
+        {
+            return starts[t]+Character.charCount(cps[t]);
+        }
+
+        private boolean same(int a, int b, int len)
+        {
+            return b+len<=n && s.regionMatches(a, s, b, len);
+        }
+    }
+
+    // matches the regex \s character class
+    private static boolean isSpace(char c)
+    {
+        return c==' ' || c=='\t' || c=='\n' || c=='\u000B' || c=='\f' || c=='\r';
+    }
+
+    // characters that the regex . does not match
+    private static boolean isLineTerminator(int c)
+    {
+        return c=='\n' || c=='\r' || c=='\u0085' || c=='\u2028' || c=='\u2029';
+    }
+}
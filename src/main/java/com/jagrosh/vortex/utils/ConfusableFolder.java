@@ -0,0 +1,278 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Folds text to a lowercase skeleton for matching, so that fullwidth letters,
+ * styled letters, lookalikes from other alphabets and letters buried under
+ * combining marks all match their plain versions. The mapping for every
+ * character is worked out once (with NFKD and a list of lookalikes) and kept
+ * in tables, so folding a message is a single pass of table lookups instead
+ * of normalizing it. Only pages of the table that change something are
+ * stored. The same pass counts the combining marks and symbols it sees, for
+ * spotting zalgo and emoji spam.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ConfusableFolder
+{
+    // special table values; these characters never show up in the output
+    private static final char MARK = '\uFFFF';   // combining mark, dropped and counted
+    private static final char IGNORE = '\uFFFE'; // invisible character, dropped
+    private static final char EXPAND = '\uFFFD'; // folds to more than one character
+    private static final long CHANGED = Long.MIN_VALUE; // top bit of fold's result
+
+    // lookalikes that NFKD leaves alone, as pairs of (lookalike, plain)
+    private static final String LOOKALIKES = 
+            "\u0430a\u0432b\u0435e\u043Ak\u043Cm\u043Dh\u043Eo\u0440p\u0441c\u0442t\u0443y\u0445x"
+            + "\u0455s\u0456i\u0457i\u0458j\u04BBh\u0501d\u051Bq\u051Dw\u04CFl\u050Dg\u04AFy\u0261g"
+            + "\u0280r\u026Ai\u028Fy\u1D00a\u1D04c\u1D05d\u1D07e\u1D0Aj\u1D0Bk\u1D0Dm\u1D0Fo\u1D18p"
+            + "\u1D1Bt\u1D1Cu\u1D20v\u1D21w\u1D22z"
+            + "\u03B1a\u03B2b\u03B5e\u03B6z\u03B7n\u03B9i\u03BAk\u03BCu\u03BDv\u03BFo\u03C1p\u03C4t\u03C5"
+            + "u\u03C7x\u03C9w\u03F2c\u03F3j\u2113l\u01C0l\u0131i"
+            + "\u0410a\u0412b\u0415e\u041Ak\u041Cm\u041Dh\u041Eo\u0420p\u0421c\u0422t\u0423y\u0425x"
+            + "\u0405s\u0406i\u0408j\u04C0l\u04AEy\u0391a\u0392b\u0395e\u0396z\u0397h\u0399i\u039Ak"
+            + "\u039Cm\u039Dn\u039Fo\u03A1p\u03A4t\u03A5y\u03A7x";
+    private static final int ASTRAL_START = 0x1D400, ASTRAL_END = 0x1F200;
+    private static final int REGIONAL_START = 0x1F1E6, REGIONAL_END = 0x1F200;
+    private static final int NEGATIVE_CIRCLED = 0x1F150, NEGATIVE_SQUARED = 0x1F170;
+
+    private static final char[][] PAGES = new char[256][];
+    private static final char[] ASTRAL = new char[ASTRAL_END-ASTRAL_START];
+    private static final char[] EXPANDED_KEYS;
+    private static final String[] EXPANDED_VALUES;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    static
+    {
+        Map<Character,String> expansions = new TreeMap<>();
+        for(int page=0; page<256; page++)
+        {
+            char[] table = new char[256];
+            boolean identity = true;
+            for(int i=0; i<256; i++)
+            {
+                char c = (char)(page<<8 | i);
+                String folded = Character.isSurrogate(c) ? String.valueOf(c) : decompose(c);
+                if(folded.length()==1)
+                    table[i] = folded.charAt(0);
+                else if(folded.length()==0)
+                    table[i] = isMark(c) ? MARK : IGNORE;
+                else
+                {
+                    table[i] = EXPAND;
+                    expansions.put(c, folded);
+                }
+                identity &= table[i]==c;
+            }
+            PAGES[page] = identity ? null : table;
+        }
+        for(int i=0; i<LOOKALIKES.length(); i+=2)
+        {
+            char c = LOOKALIKES.charAt(i);
+            set(c, LOOKALIKES.charAt(i+1));
+            expansions.remove(c);
+        }
+        set(EXPAND, IGNORE);
+        set(IGNORE, IGNORE);
+        set(MARK, IGNORE);
+        EXPANDED_KEYS = new char[expansions.size()];
+        EXPANDED_VALUES = new String[expansions.size()];
+        int n = 0;
+        for(Map.Entry<Character,String> entry: expansions.entrySet())
+        {
+            EXPANDED_KEYS[n] = entry.getKey();
+            EXPANDED_VALUES[n++] = entry.getValue();
+        }
+
+        // styled letters and digits, enclosed letters, and regional indicators
+        for(int cp=ASTRAL_START; cp<ASTRAL_END; cp++)
+        {
+            String folded;
+            if(cp>=REGIONAL_START && cp<REGIONAL_END)
+                folded = String.valueOf((char)('a'+cp-REGIONAL_START));
+            else if(cp>=NEGATIVE_CIRCLED && cp<NEGATIVE_CIRCLED+26)
+                folded = String.valueOf((char)('a'+cp-NEGATIVE_CIRCLED));
+            else if(cp>=NEGATIVE_SQUARED && cp<NEGATIVE_SQUARED+26)
+                folded = String.valueOf((char)('a'+cp-NEGATIVE_SQUARED));
+            else
+                folded = decompose(new String(Character.toChars(cp)));
+            ASTRAL[cp-ASTRAL_START] = folded.length()==1 && folded.charAt(0)<0x80 ? folded.charAt(0) : 0;
+        }
+    }
+
+    /**
+     * Folds text into a buffer. Most messages don't change at all, so nothing
+     * is copied into the buffer until the first character that does; unless
+     * {@link #changed(long)} says otherwise, the folded text is the text
+     * itself. The buffer being empty doesn't mean that, since text that's
+     * nothing but dropped characters folds to nothing.
+     *
+     * @param  text the text to fold
+     * @param  out  an empty buffer for the folded text
+     * @return whether the text changed, and the combining marks and symbols seen, read with
+     *         {@link #changed(long)}, {@link #marks(long)} and {@link #symbols(long)}
+     */
+    public static long fold(CharSequence text, StringBuilder out)
+    {
+        int marks = 0, symbols = 0;
+        boolean copying = false;
+        for(int i=0; i<text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if(c<0x80)
+            {
+                // most text is ascii, which only needs its case folded
+                if(c>='A' && c<='Z')
+                {
+                    if(!copying)
+                        out.append(text, 0, i);
+                    copying = true;
+                    out.append((char)(c+('a'-'A')));
+                }
+                else if(copying)
+                    out.append(c);
+                continue;
+            }
+            if(Character.isHighSurrogate(c) && i+1<text.length() && Character.isLowSurrogate(text.charAt(i+1)))
+            {
+                int cp = Character.toCodePoint(c, text.charAt(i+1));
+                char folded = cp>=ASTRAL_START && cp<ASTRAL_END ? ASTRAL[cp-ASTRAL_START] : 0;
+                if(folded!=0)
+                {
+                    if(!copying)
+                        out.append(text, 0, i);
+                    copying = true;
+                    out.append(folded);
+                }
+                else
+                {
+                    if(Character.getType(cp)==Character.OTHER_SYMBOL)
+                        symbols++;
+                    if(copying)
+                        out.append(c).append(text.charAt(i+1));
+                }
+                i++;
+                continue;
+            }
+            char[] page = PAGES[c>>>8];
+            char folded = page==null ? c : page[c & 0xFF];
+            if(folded==c)
+            {
+                if(c>=0x2000 && Character.getType(c)==Character.OTHER_SYMBOL)
+                    symbols++;
+                if(copying)
+                    out.append(c);
+                continue;
+            }
+            if(!copying)
+                out.append(text, 0, i);
+            copying = true;
+            switch(folded)
+            {
+                case MARK:
+                    // variation selectors just pick how an emoji looks
+                    if(c<'\uFE00' || c>'\uFE0F')
+                        marks++;
+                    break;
+                case IGNORE:
+                    break;
+                case EXPAND:
+                    out.append(EXPANDED_VALUES[Arrays.binarySearch(EXPANDED_KEYS, c)]);
+                    break;
+                default:
+                    out.append(folded);
+            }
+        }
+        return (copying ? CHANGED : 0L) | (long)symbols<<32 | marks;
+    }
+
+    public static String fold(String text)
+    {
+        StringBuilder sb = buffer();
+        return changed(fold(text, sb)) ? sb.toString() : text;
+    }
+
+    // an empty buffer for the current thread, to be used before folding anything else
+    public static StringBuilder buffer()
+    {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        return sb;
+    }
+
+    public static int marks(long result)
+    {
+        return (int)result;
+    }
+
+    public static int symbols(long result)
+    {
+        return (int)((result & ~CHANGED)>>>32);
+    }
+
+    public static boolean changed(long result)
+    {
+        return (result & CHANGED)!=0;
+    }
+
+    private static void set(char c, char folded)
+    {
+        if(PAGES[c>>>8]==null)
+        {
+            char[] table = new char[256];
+            for(int i=0; i<256; i++)
+                table[i] = (char)((c & 0xFF00) | i);
+            PAGES[c>>>8] = table;
+        }
+        PAGES[c>>>8][c & 0xFF] = folded;
+    }
+
+    private static boolean isMark(char c)
+    {
+        int type = Character.getType(c);
+        return type==Character.NON_SPACING_MARK || type==Character.ENCLOSING_MARK;
+    }
+
+    // the table entry for one character, worked out the slow way
+    private static String decompose(char c)
+    {
+        int type = Character.getType(c);
+        if(type==Character.NON_SPACING_MARK || type==Character.ENCLOSING_MARK || type==Character.FORMAT)
+            return "";
+        return decompose(String.valueOf(c));
+    }
+
+    private static String decompose(String s)
+    {
+        String decomposed = Normalizer.normalize(s, Normalizer.Form.NFKD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for(int i=0; i<decomposed.length(); i++)
+        {
+            char d = decomposed.charAt(i);
+            int type = Character.getType(d);
+            if(type!=Character.NON_SPACING_MARK && type!=Character.ENCLOSING_MARK && type!=Character.FORMAT)
+                sb.append(AhoCorasick.fold(d));
+        }
+        // characters that decompose to nothing but marks are kept as they are
+        return sb.length()==0 ? s : sb.toString();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Approximate counts for any number of keys in a fixed amount of memory. Each
+ * key maps to one counter per row, and its count is the smallest of them, so
+ * counts can be too high (when keys share counters) but never too low. Adding
+ * only raises the counters that are at the smallest value, which keeps shared
+ * counters from growing as fast. Counts can be halved to let old keys fade.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CountMinSketch
+{
+    private final int depth;
+    private final int width;
+    private final AtomicIntegerArray counts;
+
+    /**
+     * @param depth the number of rows
+     * @param width the number of counters in each row, a power of two
+     */
+    public CountMinSketch(int depth, int width)
+    {
+        if(depth<1 || width<1 || Integer.bitCount(width)!=1)
+            throw new IllegalArgumentException("Invalid sketch size");
+        this.depth = depth;
+        this.width = width;
+        this.counts = new AtomicIntegerArray(depth*width);
+    }
+
+    // counts the key once more, returning its new count
+    public int add(long key)
+    {
+        long h = mix(key);
+        int target = min(h) + 1;
+        for(int row=0; row<depth; row++)
+        {
+            int idx = index(h, row);
+            int count;
+            while((count = counts.get(idx))<target && !counts.compareAndSet(idx, count, target));
+        }
+        return target;
+    }
+
+    public int estimate(long key)
+    {
+        return min(mix(key));
+    }
+
+    // halves every count
+    public void decay()
+    {
+        for(int i=0; i<counts.length(); i++)
+            counts.updateAndGet(i, count -> count>>1);
+    }
+
+    private int min(long h)
+    {
+        int min = Integer.MAX_VALUE;
+        for(int row=0; row<depth; row++)
+            min = Math.min(min, counts.get(index(h, row)));
+        return min;
+    }
+
+    // each row uses a different combination of the two halves of the hash
+    private int index(long h, int row)
+    {
+        int combined = (int)h + row*((int)(h>>>32)|1);
+        return row*width + (combined & (width-1));
+    }
+
+    static long mix(long h)
+    {
+        h ^= h>>>33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h>>>33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h>>>33;
+        return h;
+    }
+}
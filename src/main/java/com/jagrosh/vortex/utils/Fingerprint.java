@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+/**
+ * 64-bit FNV-1a hashing, used to compare message contents without keeping
+ * the contents around.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class Fingerprint
+{
+    public static final long SEED = 0xCBF29CE484222325L;
+    private static final long PRIME = 0x100000001B3L;
+    
+    public static long of(CharSequence text)
+    {
+        return append(SEED, text);
+    }
+    
+    public static long append(long hash, CharSequence text)
+    {
+        for(int i=0; i<text.length(); i++)
+            hash = append(hash, text.charAt(i));
+        return hash;
+    }
+    
+    public static long append(long hash, char c)
+    {
+        hash = (hash ^ (c & 0xFF)) * PRIME;
+        return (hash ^ (c >>> 8)) * PRIME;
+    }
+}
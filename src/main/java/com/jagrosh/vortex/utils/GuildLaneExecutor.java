@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs tasks on a fixed number of single-threaded lanes, picking the lane from
+ * the guild id, so tasks for one guild run one at a time and in order while
+ * different guilds run in parallel. Each lane has a bounded queue; when a lane
+ * is full, new tasks for it are dropped and counted instead of blocking the
+ * caller.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class GuildLaneExecutor
+{
+    private final static Logger LOG = LoggerFactory.getLogger("GuildLaneExecutor");
+
+    private final String name;
+    private final ThreadPoolExecutor[] lanes;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public GuildLaneExecutor(String name, int laneCount, int capacity)
+    {
+        this.name = name;
+        this.lanes = new ThreadPoolExecutor[laneCount];
+        for(int i=0; i<laneCount; i++)
+        {
+            String threadName = name+"-lane-"+i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity), r ->
+            {
+                Thread t = new Thread(r, threadName);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Queues a task behind any other tasks for the same guild
+     *
+     * @param  guildId the guild that the task is for
+     * @param  task    the task to run
+     * @return false if the guild's lane was full and the task was dropped
+     */
+    public boolean execute(long guildId, Runnable task)
+    {
+        try
+        {
+            lanes[laneFor(guildId)].execute(() ->
+            {
+                try
+                {
+                    task.run();
+                }
+                catch(Exception ex)
+                {
+                    failed.increment();
+                    LOG.error("Task failed in "+name+" lane for guild "+guildId, ex);
+                }
+            });
+            submitted.increment();
+            return true;
+        }
+        catch(RejectedExecutionException ex)
+        {
+            dropped.increment();
+            return false;
+        }
+    }
+
+    public int getLaneCount()
+    {
+        return lanes.length;
+    }
+
+    public int getDepth(int lane)
+    {
+        return lanes[lane].getQueue().size();
+    }
+
+    public int getTotalDepth()
+    {
+        int depth = 0;
+        for(ThreadPoolExecutor lane: lanes)
+            depth += lane.getQueue().size();
+        return depth;
+    }
+
+    public long getSubmitted()
+    {
+        return submitted.sum();
+    }
+
+    public long getDropped()
+    {
+        return dropped.sum();
+    }
+
+    public long getFailed()
+    {
+        return failed.sum();
+    }
+
+    public void shutdown()
+    {
+        for(ThreadPoolExecutor lane: lanes)
+            lane.shutdown();
+    }
+
+    private int laneFor(long guildId)
+    {
+        // snowflakes are mostly timestamp, so mix the bits before picking a lane
+        long h = guildId*0x9E3779B97F4A7C15L;
+        return (int)((h>>>32)%lanes.length);
+    }
+}
@@ -52,6 +52,7 @@ public class LogUtil
     private final static String MODLOG_STRIKE_FORMAT = LOG_TIME + MODLOG_CASE + EMOJI + MODERATOR + " gave `%d` strikes `[%d → %d]` to" + TARGET_USER + REASON;
     private final static String MODLOG_PARDON_FORMAT = LOG_TIME + MODLOG_CASE + EMOJI + MODERATOR + " pardoned `%d` strikes `[%d → %d]` from" + TARGET_USER + REASON;
     private final static String MODLOG_RAID_FORMAT   = LOG_TIME + MODLOG_CASE + EMOJI + MODERATOR + " `%s` anti-raid mode" + REASON;
+    private final static String MODLOG_FILTER_FORMAT = LOG_TIME + MODLOG_CASE + EMOJI + MODERATOR + " disabled filter `%d`" + REASON;
     
     private final static String BASICLOG_FORMAT = LOG_TIME + EMOJI + " %s";
     
@@ -96,6 +97,12 @@ public class LogUtil
                 moderator.getDiscriminator(), enabled ? "ENABLED" : "DISABLED", reasonF(reason));
     }
     
+    public static String modlogFilterFormat(OffsetDateTime time, ZoneId zone, int caseNum, User moderator, int filterNum, String reason)
+    {
+        return String.format(MODLOG_FILTER_FORMAT, timeF(time, zone), caseNum, "\uD83D\uDEAB", moderator.getName(),
+                moderator.getDiscriminator(), filterNum, reasonF(reason));
+    }
+    
     public static int isCase(Message m, int caseNum)
     {
         if(m.getAuthor().getIdLong()!=m.getJDA().getSelfUser().getIdLong())
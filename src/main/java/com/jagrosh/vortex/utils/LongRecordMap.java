@@ -0,0 +1,343 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+/**
+ * Concurrent map from a pair of longs to a fixed number of long fields, with
+ * entries expiring a fixed time after they were last written. Everything is
+ * stored inline in primitive arrays split across independently locked stripes,
+ * so an entry costs (3 + fields) longs and updates don't allocate. Expired
+ * slots are reused in place and dropped whenever a stripe is resized.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class LongRecordMap
+{
+    // slot layout: key1, key2, stamp, fields...
+    private static final int HEADER = 3;
+    private static final long EMPTY = 0L;
+    private static final long REMOVED = -1L;
+    private static final long ANY_AGE = Long.MIN_VALUE;
+
+    private final int fields;
+    private final int stride;
+    private final long ttl;
+    private final int initialCapacity;
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    /**
+     * @param fields the number of long fields in each record
+     * @param ttl    how long a record lives after its last update, in the same unit as the times passed in
+     */
+    public LongRecordMap(int fields, long ttl)
+    {
+        this(fields, ttl, 64, 64);
+    }
+
+    public LongRecordMap(int fields, long ttl, int stripes, int initialCapacity)
+    {
+        if(fields<0 || ttl<1 || stripes<1 || Integer.bitCount(stripes)!=1)
+            throw new IllegalArgumentException("Invalid record map configuration");
+        this.fields = fields;
+        this.stride = HEADER+fields;
+        this.ttl = ttl;
+        this.initialCapacity = Math.max(8, Integer.highestOneBit(Math.max(1, initialCapacity-1))<<1);
+        this.stripes = new Stripe[stripes];
+        for(int i=0; i<stripes; i++)
+            this.stripes[i] = new Stripe();
+        this.stripeShift = 64-Integer.numberOfTrailingZeros(stripes);
+    }
+
+    /**
+     * Creates or updates a record while holding its stripe's lock. New records
+     * start with every field at zero and a previous stamp of zero.
+     *
+     * @param  k1      the first key
+     * @param  k2      the second key
+     * @param  now     the current time, which becomes the record's stamp
+     * @param  a       passed through to the updater
+     * @param  b       passed through to the updater
+     * @param  updater reads and writes the record's fields
+     * @return whatever the updater returns
+     */
+    public long update(long k1, long k2, long now, long a, long b, Updater updater)
+    {
+        return update(k1, k2, now, a, b, 0L, updater);
+    }
+
+    // same as above, for updaters that need a third value
+    public long update(long k1, long k2, long now, long a, long b, long c, WideUpdater updater)
+    {
+        long hash = hash(k1, k2);
+        Stripe stripe = stripeFor(hash);
+        synchronized(stripe)
+        {
+            return stripe.update(k1, k2, hash, Math.max(now, 1L), a, b, c, updater);
+        }
+    }
+
+    public long get(long k1, long k2, int field, long now, long absent)
+    {
+        long hash = hash(k1, k2);
+        Stripe stripe = stripeFor(hash);
+        synchronized(stripe)
+        {
+            int base = stripe.find(k1, k2, hash, now);
+            return base<0 ? absent : stripe.table[base+HEADER+field];
+        }
+    }
+
+    public boolean contains(long k1, long k2, long now)
+    {
+        long hash = hash(k1, k2);
+        Stripe stripe = stripeFor(hash);
+        synchronized(stripe)
+        {
+            return stripe.find(k1, k2, hash, now)>=0;
+        }
+    }
+
+    public boolean remove(long k1, long k2)
+    {
+        long hash = hash(k1, k2);
+        Stripe stripe = stripeFor(hash);
+        synchronized(stripe)
+        {
+            int base = stripe.find(k1, k2, hash, ANY_AGE);
+            if(base<0)
+                return false;
+            stripe.table[base+2] = REMOVED;
+            return true;
+        }
+    }
+
+    // removes every live record that matches, returning how many were removed
+    public int removeIf(RecordPredicate predicate)
+    {
+        int removed = 0;
+        for(Stripe stripe: stripes)
+        {
+            synchronized(stripe)
+            {
+                long[] table = stripe.table;
+                for(int base=0; base<table.length; base+=stride)
+                {
+                    long stamp = table[base+2];
+                    if(stamp!=EMPTY && stamp!=REMOVED && predicate.test(table[base], table[base+1], table, base+HEADER))
+                    {
+                        table[base+2] = REMOVED;
+                        removed++;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    // compacts every stripe, dropping expired and removed records
+    public void purge(long now)
+    {
+        for(Stripe stripe: stripes)
+        {
+            synchronized(stripe)
+            {
+                stripe.rebuild(now);
+            }
+        }
+    }
+
+    public int size(long now)
+    {
+        int size = 0;
+        for(Stripe stripe: stripes)
+        {
+            synchronized(stripe)
+            {
+                long[] table = stripe.table;
+                for(int base=0; base<table.length; base+=stride)
+                    if(!stripe.isDead(table[base+2], now))
+                        size++;
+            }
+        }
+        return size;
+    }
+
+    public int capacity()
+    {
+        int capacity = 0;
+        for(Stripe stripe: stripes)
+        {
+            synchronized(stripe)
+            {
+                capacity += stripe.capacity;
+            }
+        }
+        return capacity;
+    }
+
+    private Stripe stripeFor(long hash)
+    {
+        return stripeShift==64 ? stripes[0] : stripes[(int)(hash>>>stripeShift)];
+    }
+
+    private static long hash(long k1, long k2)
+    {
+        long h = k1*0x9E3779B97F4A7C15L ^ k2*0xC2B2AE3D27D4EB4FL;
+        h ^= h>>>33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h>>>33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h>>>33;
+        return h;
+    }
+
+    @FunctionalInterface
+    public interface WideUpdater
+    {
+        long apply(long[] data, int offset, long lastStamp, long a, long b, long c);
+    }
+
+    @FunctionalInterface
+    public interface Updater extends WideUpdater
+    {
+        /**
+         * @param  data      the backing array
+         * @param  offset    where this record's fields start in the array
+         * @param  lastStamp the time of the previous update, or 0 for a new record
+         * @param  a         value passed to update
+         * @param  b         value passed to update
+         * @return any value, returned from update
+         */
+        long apply(long[] data, int offset, long lastStamp, long a, long b);
+
+        @Override
+        default long apply(long[] data, int offset, long lastStamp, long a, long b, long c)
+        {
+            return apply(data, offset, lastStamp, a, b);
+        }
+    }
+
+    @FunctionalInterface
+    public interface RecordPredicate
+    {
+        boolean test(long k1, long k2, long[] data, int offset);
+    }
+
+    private class Stripe
+    {
+        private long[] table = new long[initialCapacity*stride];
+        private int capacity = initialCapacity;
+        private int used = 0; // slots that aren't empty, including dead ones
+
+        private boolean isDead(long stamp, long now)
+        {
+            return stamp==EMPTY || stamp==REMOVED || now-stamp>=ttl;
+        }
+
+        private int find(long k1, long k2, long hash, long now)
+        {
+            int mask = capacity-1;
+            int idx = (int)hash & mask;
+            for(int probes=0; probes<capacity; probes++)
+            {
+                int base = idx*stride;
+                long stamp = table[base+2];
+                if(stamp==EMPTY)
+                    return -1;
+                if(stamp!=REMOVED && table[base]==k1 && table[base+1]==k2 && (now==ANY_AGE || now-stamp<ttl))
+                    return base;
+                idx = (idx+1) & mask;
+            }
+            return -1;
+        }
+
+        private long update(long k1, long k2, long hash, long now, long a, long b, long c, WideUpdater updater)
+        {
+            int mask = capacity-1;
+            int idx = (int)hash & mask;
+            int reuse = -1;
+            for(int probes=0; probes<capacity; probes++)
+            {
+                int base = idx*stride;
+                long stamp = table[base+2];
+                if(stamp==EMPTY)
+                {
+                    if(reuse<0)
+                    {
+                        if(used+1 > capacity-(capacity>>2))
+                        {
+                            rebuild(now);
+                            return update(k1, k2, hash, now, a, b, c, updater);
+                        }
+                        used++;
+                        reuse = base;
+                    }
+                    break;
+                }
+                boolean dead = isDead(stamp, now);
+                if(!dead && table[base]==k1 && table[base+1]==k2)
+                {
+                    long result = updater.apply(table, base+HEADER, stamp, a, b, c);
+                    table[base+2] = now;
+                    return result;
+                }
+                if(dead && reuse<0)
+                    reuse = base;
+                idx = (idx+1) & mask;
+            }
+            if(reuse<0)
+            {
+                rebuild(now);
+                return update(k1, k2, hash, now, a, b, c, updater);
+            }
+            table[reuse] = k1;
+            table[reuse+1] = k2;
+            for(int i=0; i<fields; i++)
+                table[reuse+HEADER+i] = 0L;
+            long result = updater.apply(table, reuse+HEADER, 0L, a, b, c);
+            table[reuse+2] = now;
+            return result;
+        }
+
+        // re-inserts the live records into a table sized so they fill at most half of it
+        private void rebuild(long now)
+        {
+            long[] old = table;
+            int live = 0;
+            for(int base=0; base<old.length; base+=stride)
+                if(!isDead(old[base+2], now))
+                    live++;
+            int newCapacity = initialCapacity;
+            while(newCapacity < live*2)
+                newCapacity <<= 1;
+            long[] fresh = new long[newCapacity*stride];
+            int mask = newCapacity-1;
+            for(int base=0; base<old.length; base+=stride)
+            {
+                if(isDead(old[base+2], now))
+                    continue;
+                int idx = (int)hash(old[base], old[base+1]) & mask;
+                while(fresh[idx*stride+2]!=EMPTY)
+                    idx = (idx+1) & mask;
+                System.arraycopy(old, base, fresh, idx*stride, stride);
+            }
+            table = fresh;
+            capacity = newCapacity;
+            used = live;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import java.util.Arrays;
+
+/**
+ * 64-bit SimHash over overlapping 4-character shingles, ignoring case and
+ * whitespace. Texts that share most of their shingles get hashes that differ
+ * in only a few bits, so near-identical messages can be compared by their
+ * hashes alone.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class SimHash
+{
+    private static final int SHINGLE = 4;
+    private static final ThreadLocal<int[]> WEIGHTS = ThreadLocal.withInitial(() -> new int[64]);
+    
+    public static long of(CharSequence text)
+    {
+        int[] weights = WEIGHTS.get();
+        Arrays.fill(weights, 0);
+        long shingle = 0;
+        int length = 0;
+        for(int i=0; i<text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if(Character.isWhitespace(c))
+                continue;
+            shingle = (shingle<<16) | Character.toLowerCase(c);
+            if(++length>=SHINGLE)
+                add(weights, mix(shingle));
+        }
+        // too short for a full shingle, so the whole text is the only one
+        if(length<SHINGLE)
+        {
+            if(length==0)
+                return 0L;
+            add(weights, mix(shingle | (long)length<<60));
+        }
+        long hash = 0;
+        for(int bit=0; bit<64; bit++)
+            if(weights[bit]>0)
+                hash |= 1L<<bit;
+        return hash;
+    }
+    
+    // the number of bits that differ between two hashes
+    public static int distance(long a, long b)
+    {
+        return Long.bitCount(a^b);
+    }
+    
+    private static void add(int[] weights, long feature)
+    {
+        for(int bit=0; bit<64; bit++)
+            weights[bit] += (feature>>>bit & 1L)==0 ? -1 : 1;
+    }
+    
+    private static long mix(long h)
+    {
+        h ^= h>>>33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h>>>33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h>>>33;
+        return h;
+    }
+}
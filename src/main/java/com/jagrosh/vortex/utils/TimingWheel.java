@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs many short delayed tasks off one repeating tick, instead of scheduling
+ * each one on its own. Tasks are put in the slot for the tick they are due
+ * on, so scheduling and running a task take constant time, and tasks run up
+ * to one tick late. Delays longer than a full turn of the wheel wait for
+ * however many turns they need.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class TimingWheel
+{
+    private final static Logger LOG = LoggerFactory.getLogger("TimingWheel");
+
+    private final long tick;
+    private final List<Entry>[] slots;
+    private long cursor = 0;
+
+    /**
+     * @param threadpool the threadpool to tick on
+     * @param tick       the time between ticks, in millis
+     * @param slotCount  the number of slots, which should cover the usual delays
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(ScheduledExecutorService threadpool, long tick, int slotCount)
+    {
+        this.tick = tick;
+        this.slots = new List[slotCount];
+        for(int i=0; i<slotCount; i++)
+            slots[i] = new ArrayList<>();
+        threadpool.scheduleAtFixedRate(this::advance, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a task after (at least) a delay
+     *
+     * @param delay the delay, in millis
+     * @param task  the task; it should be quick, since it runs on the wheel's tick
+     */
+    public void schedule(long delay, Runnable task)
+    {
+        long ticks = Math.max(1, (delay+tick-1)/tick);
+        synchronized(this)
+        {
+            int slot = (int)((cursor+ticks)%slots.length);
+            slots[slot].add(new Entry(task, (ticks-1)/slots.length));
+        }
+    }
+
+    public synchronized int size()
+    {
+        int size = 0;
+        for(List<Entry> slot: slots)
+            size += slot.size();
+        return size;
+    }
+
+    private void advance()
+    {
+        List<Runnable> due = new ArrayList<>();
+        synchronized(this)
+        {
+            cursor++;
+            Iterator<Entry> it = slots[(int)(cursor%slots.length)].iterator();
+            while(it.hasNext())
+            {
+                Entry entry = it.next();
+                if(entry.rounds>0)
+                    entry.rounds--;
+                else
+                {
+                    due.add(entry.task);
+                    it.remove();
+                }
+            }
+        }
+        for(Runnable task: due)
+        {
+            try
+            {
+                task.run();
+            }
+            catch(Exception ex)
+            {
+                LOG.error("Timed task failed", ex);
+            }
+        }
+    }
+
+    private static class Entry
+    {
+        private final Runnable task;
+        private long rounds;
+
+        private Entry(Runnable task, long rounds)
+        {
+            this.task = task;
+            this.rounds = rounds;
+        }
+    }
+}
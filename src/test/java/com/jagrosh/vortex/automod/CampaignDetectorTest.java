@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CampaignDetectorTest
+{
+    private static final int PAIRS_PER_DECAY = 2000000;
+    private static final long CAMPAIGN = 42L;
+
+    // the scheduled decay is 5 minutes out, so the tests call it themselves
+    private final ScheduledExecutorService threadpool = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void shutdown()
+    {
+        threadpool.shutdownNow();
+    }
+
+    @Test
+    public void freshKeysStayBelowTrending()
+    {
+        CampaignDetector detector = new CampaignDetector(threadpool);
+        Random random = new Random(22);
+        int highest = 0;
+        for(int period=0; period<3; period++)
+        {
+            for(int i=0; i<PAIRS_PER_DECAY; i++)
+                highest = Math.max(highest, detector.observe(random.nextLong(), random.nextLong(), "fresh"));
+            detector.decay();
+        }
+        for(int i=0; i<PAIRS_PER_DECAY; i++)
+            highest = Math.max(highest, detector.observe(random.nextLong(), random.nextLong(), "fresh"));
+        assertTrue("highest "+highest, highest<CampaignDetector.TRENDING/4);
+        assertTrue(detector.getHeavyHitters().isEmpty());
+    }
+
+    @Test
+    public void campaignIsConfirmedAmongNoise()
+    {
+        CampaignDetector detector = new CampaignDetector(threadpool);
+        Random random = new Random(7);
+        int count = 0;
+        for(long guild=1; guild<=40; guild++)
+        {
+            for(int i=0; i<10000; i++)
+                detector.observe(random.nextLong(), random.nextLong(), "fresh");
+            count = detector.observe(guild, CAMPAIGN, "join my server");
+        }
+        // the exact count starts once the sketch makes it a candidate
+        assertEquals(40-CampaignDetector.TRENDING/4+1, count);
+        assertTrue(count>=CampaignDetector.TRENDING);
+        CampaignDetector.Entry top = detector.getHeavyHitters().get(0);
+        assertEquals(CAMPAIGN, top.key);
+        assertEquals(count, top.getCount());
+        assertEquals("join my server", top.sample);
+    }
+
+    @Test
+    public void guildsAreCountedOnce()
+    {
+        CampaignDetector detector = new CampaignDetector(threadpool);
+        int count = 0;
+        for(int i=0; i<100; i++)
+            for(long guild=1; guild<=10; guild++)
+                count = detector.observe(guild, CAMPAIGN, "join my server");
+        // guilds from before it became a candidate are picked up when they post it again
+        assertEquals(10, count);
+    }
+
+    @Test
+    public void campaignsFadeOut()
+    {
+        CampaignDetector detector = new CampaignDetector(threadpool);
+        for(long guild=1; guild<=40; guild++)
+            detector.observe(guild, CAMPAIGN, "join my server");
+        assertFalse(detector.getHeavyHitters().isEmpty());
+        detector.decay();
+        // still counted for a while after the last post
+        assertTrue(detector.getHeavyHitters().get(0).getCount()>=CampaignDetector.TRENDING);
+        for(int i=0; i<4; i++)
+            detector.decay();
+        assertTrue(detector.getHeavyHitters().isEmpty());
+        assertTrue(detector.observe(41L, CAMPAIGN, "join my server")<CampaignDetector.TRENDING/4);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import static org.junit.Assert.*;
+import com.jagrosh.vortex.automod.Filter.GlobFilter;
+import com.jagrosh.vortex.automod.Filter.RegexFilter;
+import com.jagrosh.vortex.automod.Filter.WordFilter;
+import com.jagrosh.vortex.utils.BoundedCharSequence.LimitExceededException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class FilterMatcherTest
+{
+    // the backreference keeps the regex engine from short-cutting the nested loop, so this backtracks exponentially without a 'b'
+    private static final String CATASTROPHIC = "(a*)*\\1b";
+    private static final String PADDING = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaac";
+
+    @Test
+    public void matchesWordsAndGlobs()
+    {
+        FilterMatcher matcher = new FilterMatcher(Arrays.asList(new WordFilter(1, 1, "spam"), new GlobFilter(2, 1, "free*")));
+        assertEquals(1, matcher.match("this is SPAM").num);
+        assertEquals(2, matcher.match("get your freebies").num);
+        assertNull(matcher.match("spammer"));
+        assertNull(matcher.match("carefree"));
+    }
+
+    @Test
+    public void mostStrikesWins()
+    {
+        FilterMatcher matcher = new FilterMatcher(Arrays.asList(new WordFilter(1, 1, "bad"), new GlobFilter(2, 3, "b?d"), 
+                new RegexFilter(3, 2, "ba+d")));
+        assertEquals(2, matcher.match("so bad").num);
+        assertEquals(3, matcher.match("so baaad").num);
+    }
+
+    @Test
+    public void regexKeepsWordBoundaries()
+    {
+        FilterMatcher matcher = new FilterMatcher(Arrays.asList(new RegexFilter(1, 1, "(?i)\\bass\\b")));
+        assertEquals(1, matcher.match("what an Ass").num);
+        assertNull(matcher.match("first class"));
+        assertNull(matcher.match("Pass it on"));
+    }
+
+    @Test
+    public void disabledRegexIsSkipped()
+    {
+        Guard guard = new Guard(RegexFilter.MAX_NANOS);
+        FilterMatcher matcher = new FilterMatcher(Arrays.asList(new RegexFilter(1, 1, "spam", true)));
+        assertNull(matcher.match(new MessageView("spam"), guard));
+        assertEquals(0, guard.charges);
+    }
+
+    @Test
+    public void limitIsNoMatch()
+    {
+        // a slow machine can hit the time limit first, so either limit will do here
+        RegexFilter regex = new RegexFilter(1, 1, CATASTROPHIC);
+        Guard guard = new Guard(Long.MAX_VALUE);
+        FilterMatcher matcher = new FilterMatcher(Arrays.asList(regex));
+        assertNull(matcher.match(new MessageView(PADDING), guard));
+        assertEquals(1, guard.violations.size());
+        assertTrue(guard.violations.get(0).startsWith("1:"));
+        assertEquals(1, guard.charges);
+        assertFalse(regex.test(PADDING));
+    }
+
+    @Test
+    public void stepLimitIsReported()
+    {
+        try
+        {
+            new RegexFilter(1, 1, CATASTROPHIC).find(PADDING, TimeUnit.MINUTES.toNanos(1));
+            fail("expected the step limit");
+        }
+        catch(LimitExceededException ex)
+        {
+            assertTrue(ex.isStepLimit());
+        }
+    }
+
+    @Test
+    public void timeoutIsNoMatch()
+    {
+        // a budget of one nanosecond runs out before the first check
+        RegexFilter regex = new RegexFilter(1, 1, CATASTROPHIC);
+        Guard guard = new Guard(1);
+        FilterMatcher matcher = new FilterMatcher(Arrays.asList(regex));
+        assertNull(matcher.match(new MessageView(PADDING+PADDING), guard));
+        assertEquals(Arrays.asList("1:time"), guard.violations);
+    }
+
+    @Test
+    public void outOfBudgetIsNoMatch()
+    {
+        Guard guard = new Guard(0);
+        FilterMatcher matcher = new FilterMatcher(Arrays.asList(new RegexFilter(1, 1, "spam"), new RegexFilter(2, 2, "eggs")));
+        assertNull(matcher.match(new MessageView("spam and eggs"), guard));
+        assertEquals(Arrays.asList("1:time", "2:time"), guard.violations);
+        assertEquals(0, guard.charges);
+    }
+
+    @Test
+    public void otherFiltersStillMatchPastALimit()
+    {
+        Guard guard = new Guard(Long.MAX_VALUE);
+        FilterMatcher matcher = new FilterMatcher(Arrays.asList(new WordFilter(1, 1, "c"), new RegexFilter(2, 2, CATASTROPHIC)));
+        assertEquals(1, matcher.match(new MessageView(PADDING.replace("c", " c")), guard).num);
+        assertEquals(1, guard.violations.size());
+    }
+
+    @Test
+    public void stepLimitGrowsWithLength()
+    {
+        assertEquals(RegexFilter.BASE_STEPS, RegexFilter.maxSteps(0));
+        assertEquals(RegexFilter.BASE_STEPS+2000*RegexFilter.STEPS_PER_CHAR, RegexFilter.maxSteps(2000));
+    }
+
+    private static class Guard implements FilterMatcher.RegexGuard
+    {
+        private long remaining;
+        private int charges = 0;
+        private final List<String> violations = new ArrayList<>();
+
+        private Guard(long remaining)
+        {
+            this.remaining = remaining;
+        }
+
+        @Override
+        public long remainingNanos()
+        {
+            return remaining;
+        }
+
+        @Override
+        public void charge(long nanos)
+        {
+            remaining -= nanos;
+            charges++;
+        }
+
+        @Override
+        public void violation(RegexFilter filter, boolean stepLimit)
+        {
+            violations.add(filter.num+(stepLimit ? ":step" : ":time"));
+        }
+    }
+}
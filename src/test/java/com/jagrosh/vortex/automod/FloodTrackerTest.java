@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class FloodTrackerTest
+{
+    private static final long GUILD = 1L, USER = 2L;
+    private static final long START = 1500000000000L;
+    private static final long INTERVAL = 5000;
+
+    @Test
+    public void allowsUpToTheLimit()
+    {
+        FloodTracker floods = new FloodTracker();
+        for(int i=0; i<5; i++)
+            assertEquals(0, floods.take(GUILD, USER, 5, INTERVAL, START));
+        assertEquals(1, floods.take(GUILD, USER, 5, INTERVAL, START));
+        assertEquals(2, floods.take(GUILD, USER, 5, INTERVAL, START+1));
+    }
+
+    @Test
+    public void refillsOverTheInterval()
+    {
+        FloodTracker floods = new FloodTracker();
+        for(int i=0; i<5; i++)
+            floods.take(GUILD, USER, 5, INTERVAL, START);
+        // one message comes back every interval/messages
+        assertEquals(1, floods.take(GUILD, USER, 5, INTERVAL, START+INTERVAL/5-1));
+        assertEquals(0, floods.take(GUILD, USER, 5, INTERVAL, START+INTERVAL/5));
+        assertEquals(2, floods.take(GUILD, USER, 5, INTERVAL, START+INTERVAL/5));
+    }
+
+    @Test
+    public void floodLastsUntilTheBucketIsFull()
+    {
+        FloodTracker floods = new FloodTracker();
+        for(int i=0; i<6; i++)
+            floods.take(GUILD, USER, 5, INTERVAL, START);
+        // a partial refill lets a message through without ending the flood
+        assertEquals(0, floods.take(GUILD, USER, 5, INTERVAL, START+INTERVAL/2));
+        assertEquals(0, floods.take(GUILD, USER, 5, INTERVAL, START+INTERVAL/2));
+        assertEquals(2, floods.take(GUILD, USER, 5, INTERVAL, START+INTERVAL/2));
+        // once it's full again, the count starts over
+        assertEquals(0, floods.take(GUILD, USER, 5, INTERVAL, START+INTERVAL*2));
+        for(int i=0; i<4; i++)
+            floods.take(GUILD, USER, 5, INTERVAL, START+INTERVAL*2);
+        assertEquals(1, floods.take(GUILD, USER, 5, INTERVAL, START+INTERVAL*2));
+    }
+
+    @Test
+    public void outOfOrderTimesDontRefill()
+    {
+        FloodTracker floods = new FloodTracker();
+        for(int i=0; i<5; i++)
+            floods.take(GUILD, USER, 5, INTERVAL, START+INTERVAL);
+        assertEquals(1, floods.take(GUILD, USER, 5, INTERVAL, START));
+        assertEquals(2, floods.take(GUILD, USER, 5, INTERVAL, START+INTERVAL));
+    }
+
+    @Test
+    public void membersAreSeparate()
+    {
+        FloodTracker floods = new FloodTracker();
+        for(int i=0; i<3; i++)
+            floods.take(GUILD, USER, 2, INTERVAL, START);
+        assertEquals(0, floods.take(GUILD, USER+1, 2, INTERVAL, START));
+        assertEquals(0, floods.take(GUILD+1, USER, 2, INTERVAL, START));
+        assertEquals(3, floods.size(START));
+    }
+
+    @Test
+    public void purgeForgetsIdleMembers()
+    {
+        FloodTracker floods = new FloodTracker();
+        floods.take(GUILD, USER, 5, INTERVAL, START);
+        floods.purge(START+FloodTracker.MAX_SECONDS*1000L+1);
+        assertEquals(0, floods.size(START+FloodTracker.MAX_SECONDS*1000L+1));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import static org.junit.Assert.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class InviteResolverTest
+{
+    // lookups wait here until the test answers them
+    private final Map<String,Consumer<Long>> successes = new HashMap<>();
+    private final Map<String,Consumer<Throwable>> failures = new HashMap<>();
+    private int requests = 0;
+    private final InviteResolver resolver = new InviteResolver((jda, code, success, failure) ->
+    {
+        requests++;
+        successes.put(code, success);
+        failures.put(code, failure);
+    });
+
+    @Test
+    public void cachesGuilds()
+    {
+        CompletableFuture<Long> future = resolver.resolve(null, "abc");
+        assertNull(resolver.getCached("abc"));
+        successes.get("abc").accept(42L);
+        assertEquals(42L, (long)future.join());
+        assertEquals(42L, (long)resolver.getCached("abc"));
+        assertEquals(42L, (long)resolver.resolve(null, "abc").join());
+        assertEquals(1, requests);
+        assertEquals(1, resolver.getHits());
+        assertEquals(1, resolver.getMisses());
+    }
+
+    @Test
+    public void cachesUnknownInvites()
+    {
+        CompletableFuture<Long> future = resolver.resolve(null, "gone");
+        successes.get("gone").accept(0L);
+        assertEquals(0L, (long)future.join());
+        assertEquals(0L, (long)resolver.getCached("gone"));
+        assertEquals(1, resolver.size());
+    }
+
+    @Test
+    public void sharesLookupsInFlight()
+    {
+        CompletableFuture<Long> first = resolver.resolve(null, "abc");
+        CompletableFuture<Long> second = resolver.resolve(null, "abc");
+        assertSame(first, second);
+        assertEquals(1, requests);
+        assertEquals(1, resolver.getCoalesced());
+        successes.get("abc").accept(7L);
+        assertEquals(7L, (long)second.join());
+    }
+
+    @Test
+    public void failuresArentCached()
+    {
+        CompletableFuture<Long> future = resolver.resolve(null, "abc");
+        failures.get("abc").accept(new RuntimeException("rate limited"));
+        assertTrue(future.isCompletedExceptionally());
+        assertNull(resolver.getCached("abc"));
+        assertEquals(1, resolver.getFailures());
+        // the next lookup tries again
+        resolver.resolve(null, "abc");
+        assertEquals(2, requests);
+    }
+
+    @Test
+    public void lookupsThatThrowFail()
+    {
+        InviteResolver throwing = new InviteResolver((jda, code, success, failure) -> 
+        {
+            throw new IllegalStateException("shutting down");
+        });
+        assertTrue(throwing.resolve(null, "abc").isCompletedExceptionally());
+        assertEquals(1, throwing.getFailures());
+        // nothing is left pending
+        assertTrue(throwing.resolve(null, "abc").isCompletedExceptionally());
+        assertEquals(0, throwing.getCoalesced());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import static org.junit.Assert.*;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.dv8tion.jda.core.Permission;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.entities.User;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class MemberExemptionsTest
+{
+    private final Set<Permission> permissions = EnumSet.noneOf(Permission.class);
+    private final Set<Long> manageMessages = new HashSet<>(); // channels
+    private final Set<Member> ignored = new HashSet<>();
+    private final AtomicInteger guildChecks = new AtomicInteger();
+    private final AtomicInteger channelChecks = new AtomicInteger();
+    private boolean bot = false;
+    private boolean interactable = true;
+
+    private final Guild guild = proxy(Guild.class, (name, args) ->
+    {
+        switch(name)
+        {
+            case "getIdLong": return 10L;
+            case "getSelfMember": return self();
+            default: return null;
+        }
+    });
+    private final User user = proxy(User.class, (name, args) -> name.equals("getIdLong") ? 20L : name.equals("isBot") ? bot : null);
+    private final Member member = proxy(Member.class, (name, args) ->
+    {
+        switch(name)
+        {
+            case "getGuild": return guild;
+            case "getUser": return user;
+            case "hasPermission":
+                if(args.length==1)
+                {
+                    guildChecks.incrementAndGet();
+                    return permissions.containsAll(Arrays.asList((Permission[])args[0]));
+                }
+                channelChecks.incrementAndGet();
+                return Arrays.asList((Permission[])args[1]).contains(Permission.MESSAGE_MANAGE) 
+                        && manageMessages.contains(((TextChannel)args[0]).getIdLong());
+            default: return null;
+        }
+    });
+    private final MemberExemptions exemptions = new MemberExemptions(m -> ignored.contains(m));
+
+    @Test
+    public void findsEveryReason()
+    {
+        assertEquals(0, exemptions.get(member, null));
+        bot = true;
+        interactable = false;
+        permissions.addAll(Arrays.asList(Permission.KICK_MEMBERS, Permission.BAN_MEMBERS, Permission.MANAGE_SERVER));
+        ignored.add(member);
+        manageMessages.add(30L);
+        exemptions.invalidate(member);
+        assertEquals(MemberExemptions.BOT | MemberExemptions.CANT_INTERACT | MemberExemptions.KICK_MEMBERS | MemberExemptions.BAN_MEMBERS 
+                | MemberExemptions.MANAGE_SERVER | MemberExemptions.IGNORED_ROLE | MemberExemptions.MANAGE_MESSAGES, exemptions.get(member, channel(30L)));
+    }
+
+    @Test
+    public void cachesUntilTheMemberChanges()
+    {
+        permissions.add(Permission.KICK_MEMBERS);
+        assertEquals(MemberExemptions.KICK_MEMBERS, exemptions.get(member, null));
+        int checks = guildChecks.get();
+        permissions.clear();
+        assertEquals(MemberExemptions.KICK_MEMBERS, exemptions.get(member, null));
+        assertEquals(checks, guildChecks.get());
+        exemptions.invalidate(member);
+        assertEquals(0, exemptions.get(member, null));
+    }
+
+    @Test
+    public void guildChangesMakeEntriesStale()
+    {
+        permissions.add(Permission.BAN_MEMBERS);
+        assertEquals(MemberExemptions.BAN_MEMBERS, exemptions.get(member, null));
+        permissions.clear();
+        exemptions.invalidate(guild);
+        assertEquals(0, exemptions.get(member, null));
+    }
+
+    @Test
+    public void channelsAreCheckedOnTheirOwn()
+    {
+        manageMessages.add(30L);
+        assertEquals(MemberExemptions.MANAGE_MESSAGES, exemptions.get(member, channel(30L)));
+        int checks = guildChecks.get();
+        assertEquals(MemberExemptions.MANAGE_MESSAGES, exemptions.get(member, channel(30L)));
+        assertEquals(1, channelChecks.get());
+        // another channel only checks the channel permission again
+        assertEquals(0, exemptions.get(member, channel(31L)));
+        assertEquals(2, channelChecks.get());
+        assertEquals(checks, guildChecks.get());
+        // and without a channel, only the guild reasons count
+        assertEquals(0, exemptions.get(member, null));
+    }
+
+    private Member self()
+    {
+        return proxy(Member.class, (name, args) -> name.equals("canInteract") ? interactable : null);
+    }
+
+    private static TextChannel channel(long id)
+    {
+        return proxy(TextChannel.class, (name, args) -> name.equals("getIdLong") ? id : null);
+    }
+
+    private interface Handler
+    {
+        Object invoke(String name, Object[] args);
+    }
+
+    // just enough of a JDA entity for the methods that are called
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler)
+    {
+        return (T)Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+        {
+            switch(method.getName())
+            {
+                case "equals": return proxy==args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                case "toString": return type.getSimpleName();
+                default: return handler.invoke(method.getName(), args);
+            }
+        });
+    }
+}
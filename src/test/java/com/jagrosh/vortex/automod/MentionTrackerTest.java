@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class MentionTrackerTest
+{
+    private static final long GUILD = 1L, USER = 2L;
+    private static final long START = 1500000000000L;
+
+    @Test
+    public void addsUpAcrossMessages()
+    {
+        MentionTracker tracker = new MentionTracker();
+        long result = tracker.record(GUILD, USER, ids(101L, 102L), START);
+        assertEquals(0, MentionTracker.before(result));
+        assertEquals(2, MentionTracker.after(result));
+        result = tracker.record(GUILD, USER, ids(103L, 104L, 105L), START+20000);
+        assertEquals(2, MentionTracker.before(result));
+        assertEquals(5, MentionTracker.after(result));
+    }
+
+    @Test
+    public void repeatsAreNotCounted()
+    {
+        MentionTracker tracker = new MentionTracker();
+        tracker.record(GUILD, USER, ids(101L, 102L, 103L), START);
+        long result = tracker.record(GUILD, USER, ids(101L, 103L), START+1000);
+        assertEquals(3, MentionTracker.before(result));
+        assertEquals(3, MentionTracker.after(result));
+    }
+
+    @Test
+    public void membersAreSeparate()
+    {
+        MentionTracker tracker = new MentionTracker();
+        tracker.record(GUILD, USER, ids(101L, 102L, 103L), START);
+        assertEquals(1, MentionTracker.after(tracker.record(GUILD, USER+1, ids(104L), START)));
+        assertEquals(1, MentionTracker.after(tracker.record(GUILD+1, USER, ids(104L), START)));
+    }
+
+    @Test
+    public void oldMentionsExpire()
+    {
+        MentionTracker tracker = new MentionTracker();
+        tracker.record(GUILD, USER, ids(101L, 102L, 103L), START);
+        long result = tracker.record(GUILD, USER, ids(104L), START+MentionTracker.WINDOW+MentionTracker.WINDOW/6);
+        assertEquals(0, MentionTracker.before(result));
+        assertEquals(1, MentionTracker.after(result));
+    }
+
+    @Test
+    public void exactlyTheLimitIsNeverOver()
+    {
+        // the rules strike once the window goes over the limit, so a member
+        // mentioning exactly that many different users must never count higher
+        Random random = new Random(24);
+        for(int max=7; max<=60; max++)
+        {
+            for(int trial=0; trial<200; trial++)
+            {
+                MentionTracker tracker = new MentionTracker();
+                long time = START;
+                int left = max;
+                long result = 0;
+                while(left>0)
+                {
+                    Set<Long> mentioned = new HashSet<>();
+                    int count = Math.min(left, 1+random.nextInt(4));
+                    while(mentioned.size()<count)
+                        mentioned.add(random.nextLong()>>>22);
+                    left -= count;
+                    result = tracker.record(GUILD, USER, mentioned, time);
+                    time += random.nextInt(5000);
+                }
+                assertTrue("max "+max+" counted "+MentionTracker.after(result), MentionTracker.after(result)<=max);
+            }
+        }
+    }
+
+    @Test
+    public void collisionsAreRare()
+    {
+        // the count only comes up short when two IDs share a bit
+        Random random = new Random(7);
+        int exact = 0;
+        for(int trial=0; trial<1000; trial++)
+        {
+            Set<Long> mentioned = new HashSet<>();
+            while(mentioned.size()<7)
+                mentioned.add(random.nextLong()>>>22);
+            if(MentionTracker.after(new MentionTracker().record(GUILD, USER, mentioned, START))==7)
+                exact++;
+        }
+        assertTrue("exact "+exact, exact>=800);
+    }
+
+    private static Set<Long> ids(Long... ids)
+    {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.automod;
+
+import static org.junit.Assert.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class URLResolverTest
+{
+    private HttpServer server;
+    private URLResolver resolver;
+    private String base;
+    private final AtomicInteger heads = new AtomicInteger();
+
+    @Before
+    public void start() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // /chain/n redirects to /chain/n-1, and /chain/0 is the end
+        server.createContext("/chain/", exchange ->
+        {
+            int n = Integer.parseInt(exchange.getRequestURI().getPath().substring("/chain/".length()));
+            if(n==0)
+                respond(exchange, 200, null);
+            else
+                respond(exchange, 302, "/chain/"+(n-1));
+        });
+        server.createContext("/loop/a", exchange -> respond(exchange, 301, "/loop/b"));
+        server.createContext("/loop/b", exchange -> respond(exchange, 301, "/loop/a"));
+        server.createContext("/nohead", exchange ->
+        {
+            if(exchange.getRequestMethod().equals("HEAD"))
+            {
+                heads.incrementAndGet();
+                respond(exchange, 405, null);
+            }
+            else
+                respond(exchange, 302, "/chain/0");
+        });
+        server.createContext("/slow", exchange ->
+        {
+            try
+            {
+                Thread.sleep(URLResolver.HOP_TIMEOUT+1000);
+            }
+            catch(InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 302, "/chain/0");
+        });
+        server.createContext("/toslow", exchange -> respond(exchange, 302, "/slow"));
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        base = "http://127.0.0.1:"+server.getAddress().getPort();
+        resolver = new URLResolver(new DomainClassifier(), address -> false);
+    }
+
+    @After
+    public void stop()
+    {
+        resolver.shutdown();
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String location) throws IOException
+    {
+        if(location!=null)
+            exchange.getResponseHeaders().set("Location", location);
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    @Test
+    public void followsRedirectChain()
+    {
+        assertEquals(Arrays.asList(base+"/chain/2", base+"/chain/1", base+"/chain/0"), resolver.findRedirects(base+"/chain/3"));
+        assertEquals(Collections.emptyList(), resolver.findRedirects(base+"/chain/0"));
+    }
+
+    @Test
+    public void stopsAtLoops()
+    {
+        assertEquals(Arrays.asList(base+"/loop/b"), resolver.findRedirects(base+"/loop/a"));
+    }
+
+    @Test
+    public void stopsAtHopLimit()
+    {
+        List<String> chain = resolver.findRedirects(base+"/chain/20");
+        assertEquals(URLResolver.MAX_HOPS, chain.size());
+        assertEquals(base+"/chain/"+(20-URLResolver.MAX_HOPS), chain.get(chain.size()-1));
+    }
+
+    @Test
+    public void retriesWithGetWhenHeadIsRefused()
+    {
+        assertEquals(Arrays.asList(base+"/chain/0"), resolver.findRedirects(base+"/nohead"));
+        assertEquals(1, heads.get());
+    }
+
+    @Test
+    public void timeoutKeepsRedirectsSoFar()
+    {
+        long start = System.currentTimeMillis();
+        assertEquals(Arrays.asList(base+"/slow"), resolver.findRedirects(base+"/toslow"));
+        assertTrue(System.currentTimeMillis()-start < URLResolver.HOP_TIMEOUT*2);
+    }
+
+    @Test
+    public void cachesAndCoalesces()
+    {
+        resolver.findRedirects(base+"/chain/1");
+        long requests = resolver.getRequests();
+        resolver.findRedirects(base+"/chain/1");
+        assertEquals(requests, resolver.getRequests());
+        assertEquals(1, resolver.getHits());
+    }
+
+    @Test
+    public void refusesInternalHosts()
+    {
+        URLResolver internal = new URLResolver(new DomainClassifier());
+        try
+        {
+            assertEquals(Collections.emptyList(), internal.findRedirects(base+"/chain/3"));
+            assertEquals(0, internal.getRequests());
+        }
+        finally
+        {
+            internal.shutdown();
+        }
+    }
+
+    @Test
+    public void checksEveryHop()
+    {
+        // the first two hops are allowed, and the redirect after them is refused
+        AtomicInteger checks = new AtomicInteger();
+        URLResolver limited = new URLResolver(new DomainClassifier(), address -> checks.incrementAndGet()>2);
+        try
+        {
+            assertEquals(Arrays.asList(base+"/chain/4", base+"/chain/3"), limited.findRedirects(base+"/chain/5"));
+            assertEquals(2, limited.getRequests());
+            assertEquals(3, checks.get());
+        }
+        finally
+        {
+            limited.shutdown();
+        }
+    }
+
+    @Test
+    public void recognizesInternalAddresses() throws IOException
+    {
+        for(String address: new String[]{"127.0.0.1", "10.1.2.3", "172.16.0.1", "192.168.1.1", "169.254.169.254", 
+                "100.64.0.1", "0.0.0.0", "224.0.0.1", "::1", "::", "fe80::1", "fc00::1", "fd12:3456::1", "::127.0.0.1", "::ffff:10.0.0.1"})
+            assertTrue(address, URLResolver.isInternal(InetAddress.getByName(address)));
+        for(String address: new String[]{"8.8.8.8", "1.1.1.1", "172.32.0.1", "100.128.0.1", "2606:4700:4700::1111", "::ffff:8.8.8.8"})
+            assertFalse(address, URLResolver.isInternal(InetAddress.getByName(address)));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class AhoCorasickTest
+{
+    // every match as "pattern@end"
+    private static List<String> matches(AhoCorasick automaton, String text)
+    {
+        List<String> found = new ArrayList<>();
+        automaton.search(text, (pattern, end) -> 
+        {
+            found.add(pattern+"@"+end);
+            return false;
+        });
+        return found;
+    }
+
+    @Test
+    public void findsOverlappingPatterns()
+    {
+        AhoCorasick automaton = new AhoCorasick(Arrays.asList("he", "she", "his", "hers"));
+        assertEquals(Arrays.asList("0@4", "1@4", "3@6"), matches(automaton, "ushers"));
+        assertEquals(4, automaton.getPatternCount());
+    }
+
+    @Test
+    public void followsFailureLinks()
+    {
+        AhoCorasick automaton = new AhoCorasick(Arrays.asList("abcd", "bce", "c"));
+        assertEquals(Arrays.asList("2@3", "1@4"), matches(automaton, "abce"));
+        assertEquals(Arrays.asList("2@3", "0@4"), matches(automaton, "abcd"));
+    }
+
+    @Test
+    public void ignoresCase()
+    {
+        AhoCorasick automaton = new AhoCorasick(Arrays.asList("Spam"));
+        assertEquals(Arrays.asList("0@4", "0@9"), matches(automaton, "SPAM spAm"));
+    }
+
+    @Test
+    public void duplicateAndEmptyPatterns()
+    {
+        AhoCorasick automaton = new AhoCorasick(Arrays.asList("", "aa", "aa", null));
+        List<String> found = matches(automaton, "aaa");
+        assertEquals(4, found.size());
+        assertTrue(found.containsAll(Arrays.asList("1@2", "2@2", "1@3", "2@3")));
+        assertTrue(matches(new AhoCorasick(Arrays.asList()), "anything").isEmpty());
+    }
+
+    @Test
+    public void listenerCanStopSearch()
+    {
+        AhoCorasick automaton = new AhoCorasick(Arrays.asList("a"));
+        int[] calls = new int[1];
+        assertTrue(automaton.search("aaaa", (pattern, end) -> ++calls[0]==2));
+        assertEquals(2, calls[0]);
+        assertFalse(automaton.search("bbbb", (pattern, end) -> true));
+    }
+
+    @Test
+    public void agreesWithIndexOf()
+    {
+        List<String> patterns = Arrays.asList("ab", "ba", "aab", "bab", "abba", "b");
+        AhoCorasick automaton = new AhoCorasick(patterns);
+        java.util.Random random = new java.util.Random(7);
+        for(int round=0; round<200; round++)
+        {
+            StringBuilder sb = new StringBuilder();
+            for(int i=0; i<30; i++)
+                sb.append(random.nextBoolean() ? 'a' : 'b');
+            String text = sb.toString();
+            List<String> expected = new ArrayList<>();
+            for(int end=1; end<=text.length(); end++)
+                for(int p=0; p<patterns.size(); p++)
+                    if(text.startsWith(patterns.get(p), end-patterns.get(p).length()))
+                        expected.add(p+"@"+end);
+            List<String> found = matches(automaton, text);
+            found.sort(null);
+            expected.sort(null);
+            assertEquals(expected, found);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class BloomFilterTest
+{
+    @Test
+    public void addReportsNewKeys()
+    {
+        BloomFilter filter = new BloomFilter(1<<12, 3);
+        assertFalse(filter.mightContain(1));
+        assertTrue(filter.add(1));
+        assertFalse(filter.add(1));
+        assertTrue(filter.mightContain(1));
+        assertEquals(1, filter.size());
+    }
+
+    @Test
+    public void noFalseNegatives()
+    {
+        BloomFilter filter = new BloomFilter(1<<10, 4);
+        // far past what the filter is sized for
+        for(long key=0; key<5000; key++)
+            filter.add(key*31);
+        for(long key=0; key<5000; key++)
+            assertTrue(filter.mightContain(key*31));
+    }
+
+    @Test
+    public void falsePositivesStayNearTheExpectedRate()
+    {
+        // 16 bits per key with 4 hashes should give well under 1%
+        BloomFilter filter = new BloomFilter(1<<16, 4);
+        for(long key=0; key<4096; key++)
+            filter.add(key);
+        int falsePositives = 0;
+        for(long key=1000000; key<1100000; key++)
+            if(filter.mightContain(key))
+                falsePositives++;
+        assertTrue(falsePositives<1000);
+        assertEquals(1-Math.exp(-4*4096.0/(1<<16)), filter.fill(), 0.01);
+    }
+
+    @Test
+    public void clearEmptiesFilter()
+    {
+        BloomFilter filter = new BloomFilter(1<<8, 2);
+        for(long key=0; key<100; key++)
+            filter.add(key);
+        filter.clear();
+        assertEquals(0, filter.size());
+        assertEquals(0.0, filter.fill(), 0.0);
+        assertTrue(filter.add(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooSmall()
+    {
+        new BloomFilter(32, 2);
+    }
+}
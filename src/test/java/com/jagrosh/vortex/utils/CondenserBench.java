@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Times {@link Condenser#condense(String)} on a few kinds of input at growing
+ * lengths, to show how it scales, next to the regex it replaces (which gets
+ * a single run when it's slow). Run it with
+ * {@code java -cp target/classes:target/test-classes com.jagrosh.vortex.utils.CondenserBench}.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CondenserBench
+{
+    private static final int[] LENGTHS = {500, 1000, 2000, 4000, 8000};
+    private static final long MIN_NANOS = 200_000_000L;
+    private static final String REGEX = "(.+?)\\s*(\\1\\s*)+";
+    private static final int REGEX_MAX_LENGTH = 2000; // longer inputs can take minutes
+
+    public static void main(String[] args)
+    {
+        Random random = new Random(42);
+        bench("chat", len -> words(random, len));
+        bench("repeated", len -> repeat("buy cheap nitro here ", len));
+        bench("one char", len -> repeat("a", len));
+        bench("spaced", len -> repeat("a ", len));
+        bench("square-free", len -> squareFree(len));
+        bench("spaced square-free", len -> spaced(squareFree(len/2)));
+        bench("near repeat", len -> nearRepeat(random, len));
+    }
+
+    private static void bench(String name, IntFunction<String> input)
+    {
+        System.out.println(name+":");
+        for(int len: LENGTHS)
+        {
+            String text = input.apply(len);
+            String regex;
+            try
+            {
+                regex = len>REGEX_MAX_LENGTH ? "-" : String.format("%.1f us", time(text, t -> t.replaceAll(REGEX, "$1")));
+            }
+            catch(StackOverflowError ex)
+            {
+                regex = "stack overflow";
+            }
+            System.out.println(String.format("  %5d chars: %11.1f us condenser, regex %s", len, time(text, Condenser::condense), regex));
+        }
+    }
+
+    // warms up, then runs until enough time has passed to average out noise; a slow first run is timed on its own
+    private static double time(String text, Function<String,String> condense)
+    {
+        long first = System.nanoTime();
+        condense.apply(text);
+        first = System.nanoTime()-first;
+        if(first>=MIN_NANOS)
+            return first/1000.0;
+        for(int i=0; i<20; i++)
+            condense.apply(text);
+        int runs = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do
+        {
+            condense.apply(text);
+            runs++;
+            elapsed = System.nanoTime()-start;
+        }
+        while(elapsed<MIN_NANOS);
+        return elapsed/1000.0/runs;
+    }
+
+    private static String words(Random random, int len)
+    {
+        StringBuilder sb = new StringBuilder(len);
+        while(sb.length()<len)
+        {
+            int wordLength = 1+random.nextInt(8);
+            for(int i=0; i<wordLength; i++)
+                sb.append((char)('a'+random.nextInt(26)));
+            sb.append(' ');
+        }
+        return sb.substring(0, len);
+    }
+
+    private static String repeat(String unit, int len)
+    {
+        StringBuilder sb = new StringBuilder(len+unit.length());
+        while(sb.length()<len)
+            sb.append(unit);
+        return sb.substring(0, len);
+    }
+
+    // three letters with nothing ever repeating right away, so every position walks every later copy of its letter
+    private static String squareFree(int len)
+    {
+        char[] chars = new char[len];
+        for(int i=0; i<len; i++)
+            chars[i] = (char)('a'+Integer.bitCount(i+1)%2-Integer.bitCount(i)%2+1);
+        return new String(chars);
+    }
+
+    private static String spaced(String text)
+    {
+        StringBuilder sb = new StringBuilder(text.length()*2);
+        for(char c: text.toCharArray())
+            sb.append(c).append(' ');
+        return sb.toString();
+    }
+
+    // a random half, then the same half with its last character changed, so nothing quite repeats
+    private static String nearRepeat(Random random, int len)
+    {
+        String half = words(random, len/2);
+        return half+half.substring(0, half.length()-1)+"!";
+    }
+}
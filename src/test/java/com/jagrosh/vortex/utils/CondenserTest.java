@@ -0,0 +1,227 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CondenserTest
+{
+    private static final String REGEX = "(.+?)\\s*(\\1\\s*)+";
+
+    @Test
+    public void collapsesRepeats()
+    {
+        assertEquals("spam", Condenser.condense("spamspamspam"));
+        assertEquals("spam", Condenser.condense("spam spam  spam"));
+        assertEquals("a", Condenser.condense("aaaaaaaa"));
+        assertEquals("helo", Condenser.condense("hello"));
+        assertEquals("help", Condenser.condense("help"));
+        assertEquals("", Condenser.condense(""));
+    }
+
+    @Test
+    public void unitsDontSpanLines()
+    {
+        // whitespace between repeats can include line breaks, but a unit can't
+        assertEquals("spam", Condenser.condense("spam\nspam"));
+        assertEquals("ab\ncab\nc", Condenser.condense("ab\ncab\nc"));
+    }
+
+    @Test
+    public void keepsSurrogatePairsWhole()
+    {
+        assertEquals("😀", Condenser.condense("😀😀😀"));
+        assertEquals("😀😁", Condenser.condense("😀😁"));
+    }
+
+    @Test
+    public void agreesWithRegexWithoutSpaces()
+    {
+        // with no spaces or tabs, no unit can start with whitespace
+        assertAgrees(new Random(11), "abc", 40);
+        assertAgrees(new Random(12), "ab\n", 40);
+    }
+
+    @Test
+    public void agreesWithRegexOnRepeatedMessages()
+    {
+        Random random = new Random(17);
+        String[] gaps = {"", " ", "  ", "\n", " \n\t"};
+        for(int round=0; round<2000; round++)
+        {
+            // messages that don't have repeats of their own
+            String unit = random(random, "abcdefghij ", 1+random.nextInt(60)).trim();
+            if(unit.isEmpty() || !unit.replaceAll(REGEX, "$1").equals(unit))
+                continue;
+            StringBuilder sb = new StringBuilder(unit);
+            for(int i=random.nextInt(5); i>=0; i--)
+                sb.append(gaps[random.nextInt(gaps.length)]).append(unit);
+            String text = sb.toString();
+            assertEquals(text, text.replaceAll(REGEX, "$1"), Condenser.condense(text));
+        }
+    }
+
+    @Test
+    public void longUnitsOnlyAtLineStart()
+    {
+        String unit = "alpha bravo charlie delta echo foxtrot golf hotel india juliet kilo lima mike";
+        assertEquals(unit, Condenser.condense(unit+" "+unit));
+        assertEquals("x\n"+unit, Condenser.condense("x\n"+unit+" "+unit));
+        // past the limit in the middle of a line, the regex would still collapse it
+        assertEquals("x "+unit+" "+unit, Condenser.condense("x "+unit+" "+unit));
+        assertEquals("x "+unit, ("x "+unit+" "+unit).replaceAll(REGEX, "$1"));
+    }
+
+    @Test
+    public void agreesWithReference()
+    {
+        Random random = new Random(19);
+        for(String alphabet: new String[]{"ab  \n", "ab \t\n", "abc \u2028", "a\uD83D\uDE00 \n"})
+        {
+            for(int round=0; round<5000; round++)
+            {
+                String text = random(random, alphabet, random.nextInt(60));
+                assertEquals(text, reference(text), Condenser.condense(text));
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for(int i=0; i<Condenser.MAX_UNIT+4; i++)
+            sb.append((char)('a'+i%7)).append(i%3==0 ? " " : "");
+        String unit = sb.toString().trim();
+        for(String text: new String[]{unit+" "+unit, "x "+unit+" "+unit, "x "+unit.substring(2)+unit.substring(2)})
+            assertEquals(reference(text), Condenser.condense(text));
+    }
+
+    private static void assertAgrees(Random random, String alphabet, int maxLength)
+    {
+        for(int round=0; round<5000; round++)
+        {
+            String text = random(random, alphabet, random.nextInt(maxLength));
+            assertEquals(text, text.replaceAll(REGEX, "$1"), Condenser.condense(text));
+        }
+    }
+
+    private static String random(Random random, String alphabet, int length)
+    {
+        StringBuilder sb = new StringBuilder();
+        while(sb.length()<length)
+        {
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            sb.append(c);
+            if(Character.isHighSurrogate(c))
+                sb.append('\uDE00');
+        }
+        return sb.toString();
+    }
+
+    // the documented behavior, the slow way: the regex's shortest unit, except that units only
+    // start at whitespace when they're a single whitespace character, and units that don't
+    // start a line are at most MAX_UNIT non-whitespace characters
+    private static String reference(String s)
+    {
+        StringBuilder out = new StringBuilder();
+        int i = 0;
+        while(i<s.length())
+        {
+            char c = s.charAt(i);
+            int unit = -1;
+            if(isSpace(c))
+            {
+                for(int k=i+1; k<s.length() && isSpace(s.charAt(k)) && unit<0; k++)
+                    if(s.charAt(k)==c && !isLineTerminator(c))
+                        unit = 1;
+            }
+            else if(!isLineTerminator(c))
+            {
+                int start = i;
+                while(start>0 && isSpace(s.charAt(start-1)) && !isLineTerminator(s.charAt(start-1)))
+                    start--;
+                boolean lineFirst = start==0 || isLineTerminator(s.charAt(start-1));
+                for(int k=i; k>0 && !lineFirst && isSpace(s.charAt(k-1)); k--)
+                    lineFirst = isLineTerminator(s.charAt(k-1)) || k-1==0;
+                int tokens = 0;
+                for(int e=i; e<s.length() && unit<0; )
+                {
+                    int cp = s.codePointAt(e);
+                    if(isLineTerminator(s.charAt(e)))
+                        break;
+                    e += Character.charCount(cp);
+                    if(isSpace((char)cp))
+                        continue;
+                    if(++tokens>Condenser.MAX_UNIT && !lineFirst)
+                        break;
+                    int q = nonWs(s, e);
+                    if(q+e-i<=s.length() && s.regionMatches(i, s, q, e-i))
+                        unit = e-i;
+                }
+            }
+            if(unit<0)
+            {
+                int len = Character.charCount(s.codePointAt(i));
+                out.append(s, i, i+len);
+                i += len;
+                continue;
+            }
+            int q = nonWs(s, i+unit);
+            while(q>i+unit && !s.regionMatches(i, s, q, unit))
+                q--;
+            int pos = nonWs(s, q+unit);
+            while(pos+unit<=s.length() && s.regionMatches(i, s, pos, unit))
+                pos = nonWs(s, pos+unit);
+            out.append(s, i, i+unit);
+            i = pos;
+        }
+        return out.toString();
+    }
+
+    private static int nonWs(String s, int k)
+    {
+        while(k<s.length() && isSpace(s.charAt(k)))
+            k++;
+        return k;
+    }
+
+    private static boolean isSpace(char c)
+    {
+        return " \t\n\u000B\f\r".indexOf(c)>=0;
+    }
+
+    private static boolean isLineTerminator(char c)
+    {
+        return "\n\r\u0085\u2028\u2029".indexOf(c)>=0;
+    }
+
+    @Test
+    public void fingerprintMatchesCondensedText()
+    {
+        Random random = new Random(13);
+        for(int round=0; round<1000; round++)
+        {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(40);
+            for(int i=0; i<length; i++)
+                sb.append("abc \n".charAt(random.nextInt(5)));
+            String text = sb.toString();
+            assertEquals(Fingerprint.of(Condenser.condense(text)), Condenser.fingerprint(text));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ConfusableFolderTest
+{
+    @Test
+    public void unchangedTextIsReturnedAsIs()
+    {
+        String text = "nothing to fold here 123";
+        assertSame(text, ConfusableFolder.fold(text));
+        assertFalse(ConfusableFolder.changed(ConfusableFolder.fold(text, ConfusableFolder.buffer())));
+    }
+
+    @Test
+    public void foldsCaseAndLookalikes()
+    {
+        assertEquals("free nitro", ConfusableFolder.fold("FREE NITRO"));
+        // cyrillic and greek letters that look latin
+        assertEquals("free nitro", ConfusableFolder.fold("frее nіtrο"));
+        assertEquals("free nitro", ConfusableFolder.fold("ｆｒｅｅ ｎｉｔｒｏ"));
+        assertEquals("free nitro", ConfusableFolder.fold("𝐟𝐫𝐞𝐞 𝓷𝓲𝓽𝓻𝓸"));
+        assertEquals("cafe", ConfusableFolder.fold("café"));
+    }
+
+    @Test
+    public void foldsAstralLetters()
+    {
+        assertEquals("ab", ConfusableFolder.fold("🇦🇧"));
+        assertEquals("ab", ConfusableFolder.fold("🅐🅑"));
+        assertEquals("ab", ConfusableFolder.fold("🅰🅱"));
+    }
+
+    @Test
+    public void countsAndDropsMarks()
+    {
+        StringBuilder out = ConfusableFolder.buffer();
+        long result = ConfusableFolder.fold("ź̂̃ā", out);
+        assertEquals("za", out.toString());
+        assertTrue(ConfusableFolder.changed(result));
+        assertEquals(4, ConfusableFolder.marks(result));
+        assertEquals(0, ConfusableFolder.symbols(result));
+    }
+
+    @Test
+    public void textOfOnlyMarksFoldsToNothing()
+    {
+        StringBuilder sb = new StringBuilder();
+        for(int i=0; i<60; i++)
+            sb.append('́');
+        String text = sb.toString();
+        StringBuilder out = ConfusableFolder.buffer();
+        long result = ConfusableFolder.fold(text, out);
+        assertTrue(ConfusableFolder.changed(result));
+        assertEquals(60, ConfusableFolder.marks(result));
+        assertEquals("", ConfusableFolder.fold(text));
+    }
+
+    @Test
+    public void variationSelectorsArentMarks()
+    {
+        long result = ConfusableFolder.fold("❤️", ConfusableFolder.buffer());
+        assertEquals(0, ConfusableFolder.marks(result));
+    }
+
+    @Test
+    public void countsSymbolsWithoutChangingThem()
+    {
+        String text = "hi ☃☃ 😀";
+        long result = ConfusableFolder.fold(text, ConfusableFolder.buffer());
+        assertFalse(ConfusableFolder.changed(result));
+        assertEquals(3, ConfusableFolder.symbols(result));
+        assertSame(text, ConfusableFolder.fold(text));
+    }
+
+    @Test
+    public void lonelySurrogatesSurvive()
+    {
+        assertEquals("a\uD83Db", ConfusableFolder.fold("A\uD83Db"));
+    }
+}
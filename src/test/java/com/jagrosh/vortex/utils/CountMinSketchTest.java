@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CountMinSketchTest
+{
+    @Test
+    public void countsSingleKey()
+    {
+        CountMinSketch sketch = new CountMinSketch(4, 1024);
+        assertEquals(0, sketch.estimate(42));
+        for(int i=1; i<=10; i++)
+            assertEquals(i, sketch.add(42));
+        assertEquals(10, sketch.estimate(42));
+    }
+
+    @Test
+    public void neverUndercountsWhenKeysCollide()
+    {
+        // far more keys than counters, so nearly every counter is shared
+        CountMinSketch sketch = new CountMinSketch(3, 16);
+        int[] counts = new int[500];
+        Random random = new Random(5);
+        for(int i=0; i<5000; i++)
+        {
+            int key = random.nextInt(counts.length);
+            counts[key]++;
+            sketch.add(key);
+        }
+        for(int key=0; key<counts.length; key++)
+            assertTrue(sketch.estimate(key)>=counts[key]);
+    }
+
+    @Test
+    public void conservativeAddKeepsHeavyKeysClose()
+    {
+        CountMinSketch sketch = new CountMinSketch(4, 256);
+        for(int i=0; i<1000; i++)
+            sketch.add(1);
+        for(long key=100; key<400; key++)
+            sketch.add(key);
+        assertTrue(sketch.estimate(1)>=1000);
+        assertTrue(sketch.estimate(1)<1010);
+    }
+
+    @Test
+    public void decayHalvesCounts()
+    {
+        CountMinSketch sketch = new CountMinSketch(2, 64);
+        for(int i=0; i<9; i++)
+            sketch.add(7);
+        sketch.decay();
+        assertEquals(4, sketch.estimate(7));
+        sketch.decay();
+        sketch.decay();
+        sketch.decay();
+        assertEquals(0, sketch.estimate(7));
+        assertEquals(1, sketch.add(7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void widthMustBePowerOfTwo()
+    {
+        new CountMinSketch(4, 100);
+    }
+}
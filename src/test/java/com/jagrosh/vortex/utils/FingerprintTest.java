@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class FingerprintTest
+{
+    @Test
+    public void emptyTextIsSeed()
+    {
+        assertEquals(Fingerprint.SEED, Fingerprint.of(""));
+    }
+
+    @Test
+    public void appendingMatchesWholeText()
+    {
+        String text = "hello wörld 😀";
+        long hash = Fingerprint.SEED;
+        for(int i=0; i<text.length(); i++)
+            hash = Fingerprint.append(hash, text.charAt(i));
+        assertEquals(Fingerprint.of(text), hash);
+        assertEquals(Fingerprint.of(text), Fingerprint.append(Fingerprint.of("hello "), "wörld 😀"));
+        assertEquals(Fingerprint.of(text), Fingerprint.of(new StringBuilder(text)));
+    }
+
+    @Test
+    public void orderAndCaseMatter()
+    {
+        assertNotEquals(Fingerprint.of("ab"), Fingerprint.of("ba"));
+        assertNotEquals(Fingerprint.of("a"), Fingerprint.of("A"));
+        assertNotEquals(Fingerprint.of("a"), Fingerprint.of("a "));
+    }
+
+    @Test
+    public void bothBytesOfEachCharCount()
+    {
+        // same low bytes, different high bytes
+        assertNotEquals(Fingerprint.of("A"), Fingerprint.of("Ł"));
+        assertNotEquals(Fingerprint.of("ā"), Fingerprint.of("\u0001\u0001"));
+    }
+
+    @Test
+    public void fewCollisionsOnSimilarTexts()
+    {
+        java.util.Set<Long> seen = new java.util.HashSet<>();
+        for(int i=0; i<100000; i++)
+            seen.add(Fingerprint.of("message number "+i));
+        assertEquals(100000, seen.size());
+    }
+}
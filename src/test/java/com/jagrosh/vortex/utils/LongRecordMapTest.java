@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class LongRecordMapTest
+{
+    private static final LongRecordMap.Updater COUNT = (data, offset, last, a, b) -> data[offset] += a;
+
+    @Test
+    public void newRecordsStartAtZero()
+    {
+        LongRecordMap map = new LongRecordMap(2, 1000);
+        long last = map.update(1, 2, 100, 0, 0, (data, offset, stamp, a, b) -> stamp + data[offset] + data[offset+1]);
+        assertEquals(0, last);
+        assertEquals(0, map.get(1, 2, 1, 100, -1));
+        assertEquals(-1, map.get(2, 1, 0, 100, -1));
+    }
+
+    @Test
+    public void updatesSeeThePreviousStamp()
+    {
+        LongRecordMap map = new LongRecordMap(1, 1000);
+        map.update(1, 1, 100, 0, 0, COUNT);
+        assertEquals(100, map.update(1, 1, 150, 0, 0, (data, offset, last, a, b) -> last));
+    }
+
+    @Test
+    public void wideUpdaterGetsThirdValue()
+    {
+        LongRecordMap map = new LongRecordMap(1, 1000);
+        assertEquals(6, map.update(1, 1, 100, 1, 2, 3, (data, offset, last, a, b, c) -> data[offset] = a+b+c));
+        assertEquals(6, map.get(1, 1, 0, 100, -1));
+    }
+
+    @Test
+    public void recordsExpireAfterTtl()
+    {
+        LongRecordMap map = new LongRecordMap(1, 1000);
+        map.update(1, 1, 100, 5, 0, COUNT);
+        assertEquals(5, map.update(1, 1, 1099, 0, 0, COUNT));
+        assertTrue(map.contains(1, 1, 2098));
+        assertFalse(map.contains(1, 1, 2099));
+        // an expired record starts over
+        assertEquals(3, map.update(1, 1, 2099, 3, 0, COUNT));
+    }
+
+    @Test
+    public void collidingKeysStaySeparate()
+    {
+        // one small stripe, so keys probe past each other and the table is rebuilt as it grows
+        LongRecordMap map = new LongRecordMap(1, 1000, 1, 8);
+        for(int i=0; i<1000; i++)
+            map.update(i, -i, 100, i, 0, COUNT);
+        for(int i=0; i<1000; i++)
+            assertEquals(i, map.get(i, -i, 0, 100, -1));
+        assertEquals(1000, map.size(100));
+        assertTrue(map.capacity()>=2000);
+    }
+
+    @Test
+    public void removedSlotsAreReused()
+    {
+        LongRecordMap map = new LongRecordMap(1, 1000, 1, 8);
+        for(int i=0; i<5; i++)
+            map.update(i, 0, 100, 1, 0, COUNT);
+        int capacity = map.capacity();
+        for(int round=0; round<100; round++)
+        {
+            assertTrue(map.remove(round%5, 0));
+            assertFalse(map.remove(round%5, 0));
+            map.update(round%5, 0, 100, 1, 0, COUNT);
+        }
+        assertEquals(capacity, map.capacity());
+        assertEquals(5, map.size(100));
+    }
+
+    @Test
+    public void expiredSlotsAreReused()
+    {
+        LongRecordMap map = new LongRecordMap(1, 10, 1, 8);
+        for(long now=1; now<10000; now+=20)
+            map.update(now, 0, now, 1, 0, COUNT);
+        assertEquals(1, map.size(9981));
+        assertEquals(8, map.capacity());
+    }
+
+    @Test
+    public void removeIfAndPurge()
+    {
+        LongRecordMap map = new LongRecordMap(1, 1000, 4, 8);
+        for(int i=0; i<100; i++)
+            map.update(i, 0, i<50 ? 100 : 500, i, 0, COUNT);
+        assertEquals(25, map.removeIf((k1, k2, data, offset) -> data[offset]%2==0 && k1>=50));
+        assertEquals(75, map.size(500));
+        map.purge(1200);
+        assertEquals(25, map.size(1200));
+        assertFalse(map.contains(10, 0, 1200));
+        assertTrue(map.contains(51, 0, 1200));
+        assertFalse(map.contains(52, 0, 1200));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stripesMustBePowerOfTwo()
+    {
+        new LongRecordMap(1, 1000, 3, 8);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class SimHashTest
+{
+    private static final String TEXT = "Join my server for free nitro and giveaways every single day";
+
+    @Test
+    public void ignoresCaseAndWhitespace()
+    {
+        assertEquals(SimHash.of(TEXT), SimHash.of(TEXT.toUpperCase()));
+        assertEquals(SimHash.of(TEXT), SimHash.of(TEXT.replace(" ", "\n  ")));
+        assertEquals(SimHash.of("abc"), SimHash.of("a b c"));
+    }
+
+    @Test
+    public void emptyAndShortTexts()
+    {
+        assertEquals(0L, SimHash.of(""));
+        assertEquals(0L, SimHash.of("   "));
+        assertNotEquals(SimHash.of("ab"), SimHash.of("ba"));
+        assertNotEquals(SimHash.of("a"), SimHash.of("aa"));
+    }
+
+    @Test
+    public void nearDuplicatesAreClose()
+    {
+        int near = SimHash.distance(SimHash.of(TEXT), SimHash.of(TEXT+"!!"));
+        int edited = SimHash.distance(SimHash.of(TEXT), SimHash.of(TEXT.replace("every", "each")));
+        int unrelated = SimHash.distance(SimHash.of(TEXT), SimHash.of("The meeting has been moved to thursday afternoon, see you there"));
+        assertTrue(near<=6);
+        assertTrue(edited<=12);
+        assertTrue(unrelated>16);
+    }
+
+    @Test
+    public void distanceCountsDifferentBits()
+    {
+        assertEquals(0, SimHash.distance(5L, 5L));
+        assertEquals(64, SimHash.distance(0L, -1L));
+        assertEquals(2, SimHash.distance(0b1010L, 0b0000L));
+    }
+}
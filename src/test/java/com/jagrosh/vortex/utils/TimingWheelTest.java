@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.vortex.utils;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class TimingWheelTest
+{
+    // holds on to the wheel's tick so the test can advance it by hand
+    private static class ManualTicks extends ScheduledThreadPoolExecutor
+    {
+        private Runnable tick;
+
+        private ManualTicks()
+        {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit)
+        {
+            tick = command;
+            return null;
+        }
+
+        private void advance(int ticks)
+        {
+            for(int i=0; i<ticks; i++)
+                tick.run();
+        }
+    }
+
+    @Test
+    public void runsOnTheDueTick()
+    {
+        ManualTicks ticks = new ManualTicks();
+        TimingWheel wheel = new TimingWheel(ticks, 100, 8);
+        List<String> ran = new ArrayList<>();
+        wheel.schedule(250, () -> ran.add("a"));
+        wheel.schedule(0, () -> ran.add("b"));
+        assertEquals(2, wheel.size());
+        ticks.advance(1);
+        assertEquals(1, ran.size());
+        ticks.advance(1);
+        assertEquals(1, ran.size());
+        ticks.advance(1);
+        assertEquals(2, ran.size());
+        assertEquals("a", ran.get(1));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void longDelaysWrapAround()
+    {
+        ManualTicks ticks = new ManualTicks();
+        TimingWheel wheel = new TimingWheel(ticks, 10, 4);
+        int[] ran = new int[3];
+        wheel.schedule(40, () -> ran[0]++);  // exactly one turn
+        wheel.schedule(100, () -> ran[1]++); // two and a half turns
+        wheel.schedule(20, () -> ran[2]++);  // shares a slot with the long one
+        ticks.advance(2);
+        assertEquals(1, ran[2]);
+        ticks.advance(2);
+        assertEquals(1, ran[0]);
+        ticks.advance(5);
+        assertEquals(0, ran[1]);
+        ticks.advance(1);
+        assertEquals(1, ran[1]);
+        ticks.advance(20);
+        assertArrayEquals(new int[]{1, 1, 1}, ran);
+    }
+
+    @Test
+    public void failingTaskDoesntStopOthers()
+    {
+        ManualTicks ticks = new ManualTicks();
+        TimingWheel wheel = new TimingWheel(ticks, 10, 4);
+        int[] ran = new int[1];
+        wheel.schedule(10, () -> { throw new IllegalStateException("expected"); });
+        wheel.schedule(10, () -> ran[0]++);
+        ticks.advance(1);
+        assertEquals(1, ran[0]);
+        assertEquals(0, wheel.size());
+    }
+}